@@ -4,8 +4,6 @@ import javax.annotation.Nonnull;
 import java.util.List;
 import java.util.Optional;
 
-import static java.util.Collections.emptyMap;
-
 public interface Arguments {
 
     @Nonnull
@@ -56,7 +54,7 @@ public interface Arguments {
     int size();
 
     static Arguments empty() {
-        return new DefaultArguments(emptyMap());
+        return DefaultArguments.EMPTY;
     }
 
 }
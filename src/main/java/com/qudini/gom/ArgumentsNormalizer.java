@@ -0,0 +1,89 @@
+package com.qudini.gom;
+
+import graphql.schema.GraphQLFieldDefinition;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Rewrites the arguments of a {@link Batched} resolver into a canonical form before they discriminate its sources, so
+ * that arguments meaning the same thing end up resolved by the same call.
+ * <p>
+ * Implementations must return the given map itself when they have nothing to rewrite.
+ */
+@FunctionalInterface
+public interface ArgumentsNormalizer {
+
+    @Nonnull
+    Map<String, Object> normalize(GraphQLFieldDefinition field, Map<String, Object> arguments);
+
+    @Nonnull
+    default ArgumentsNormalizer andThen(ArgumentsNormalizer next) {
+        return (field, arguments) -> next.normalize(field, normalize(field, arguments));
+    }
+
+    @Nonnull
+    static ArgumentsNormalizer none() {
+        return (field, arguments) -> arguments;
+    }
+
+    /**
+     * Sorts the list arguments with the given names, for when their order doesn't matter. Comparable elements are
+     * sorted by their natural order, the others by their string representation.
+     */
+    @Nonnull
+    static ArgumentsNormalizer unorderedLists(String... argumentNames) {
+        Set<String> names = new HashSet<>(Arrays.asList(argumentNames));
+        // only instances of the same comparable class are compared with each other
+        @SuppressWarnings("unchecked")
+        Comparator<Object> comparator = (x, y) -> x instanceof Comparable && y != null && x.getClass() == y.getClass()
+                ? ((Comparable<Object>) x).compareTo(y)
+                : comparing(String::valueOf).compare(x, y);
+        return (field, arguments) -> {
+            Map<String, Object> normalizedArguments = arguments;
+            for (String name : names) {
+                Object value = arguments.get(name);
+                if (value instanceof List<?> && ((List<?>) value).size() > 1) {
+                    List<Object> sortedValue = new ArrayList<>((List<?>) value);
+                    sortedValue.sort(comparator);
+                    if (!sortedValue.equals(value)) {
+                        if (normalizedArguments == arguments) {
+                            normalizedArguments = new HashMap<>(arguments);
+                        }
+                        normalizedArguments.put(name, sortedValue);
+                    }
+                }
+            }
+            return normalizedArguments;
+        };
+    }
+
+    /**
+     * Considers an empty input object the same as {@code null}.
+     */
+    @Nonnull
+    static ArgumentsNormalizer emptyInputsAsNull() {
+        return (field, arguments) -> {
+            Map<String, Object> normalizedArguments = arguments;
+            for (Map.Entry<String, Object> argument : arguments.entrySet()) {
+                if (argument.getValue() instanceof Map<?, ?> && ((Map<?, ?>) argument.getValue()).isEmpty()) {
+                    if (normalizedArguments == arguments) {
+                        normalizedArguments = new HashMap<>(arguments);
+                    }
+                    normalizedArguments.put(argument.getKey(), null);
+                }
+            }
+            return normalizedArguments;
+        };
+    }
+
+}
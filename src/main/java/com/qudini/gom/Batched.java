@@ -9,4 +9,80 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 @Retention(RUNTIME)
 @Target(METHOD)
 public @interface Batched {
+
+    String ALL = "*";
+
+    /**
+     * The property identifying the sources (e.g. {@code "id"}), read from its getter: sources are then hashed and
+     * compared by it rather than by themselves, and the resolver returns its results keyed by it. The sources themselves
+     * by default.
+     */
+    String key() default "";
+
+    /**
+     * The maximum number of sources the resolver receives per call, bigger groups being split into chunks.
+     */
+    int maxBatchSize() default Integer.MAX_VALUE;
+
+    /**
+     * The maximum number of chunks of a same dispatch that can be resolved at the same time.
+     */
+    int maxConcurrentChunks() default Integer.MAX_VALUE;
+
+    /**
+     * The maximum number of chunks of a same dispatch invoked in parallel on the executor given to
+     * {@link Gom.Builder#executor}: by default, they are invoked one after another on the dispatching thread, unless the
+     * resolver is {@link Blocking}.
+     */
+    int maxParallelism() default 1;
+
+    /**
+     * Whether sources only differing by their selection are resolved by the same call, the resolver then receiving the
+     * union of their selections. Selections giving different arguments to the same alias of a field are still resolved
+     * by separate calls.
+     */
+    boolean mergeSelections() default false;
+
+    /**
+     * How long a call can take before failing with a {@link java.util.concurrent.TimeoutException}, in milliseconds:
+     * no timeout by default. The future returned by the resolver is then cancelled, and its {@link ConcurrencyLimit}
+     * slot released.
+     */
+    long timeoutMillis() default 0;
+
+    /**
+     * Whether the data loader caches the results of the sources it already loaded during the request.
+     */
+    boolean caching() default true;
+
+    /**
+     * The maximum number of sources the data loader caches per request, the least recently used ones being evicted
+     * first.
+     */
+    int maxCachedKeys() default Integer.MAX_VALUE;
+
+    /**
+     * The percentile of the latency of the previous calls (e.g. {@code 95}) after which a call that is still running gets
+     * duplicated on the executor given to {@link Gom.Builder#executor}, the first of both to succeed being used: no
+     * hedging by default.
+     */
+    double hedgingPercentile() default 0;
+
+    /**
+     * The names of the arguments splitting sources into separate calls, the {@link Arguments} given to the resolver only
+     * holding those: all of them by default.
+     * <p>
+     * Resolvers taking their sources as a {@code Map<Source, Arguments>} get the other arguments per source, a source
+     * being passed to separate calls when requested with different ones. Otherwise, the other arguments are not passed
+     * to the resolver at all, and sources differing only by them share the same result.
+     */
+    String[] groupingArguments() default ALL;
+
+    /**
+     * The prefixes of the selected fields splitting sources into separate calls (e.g. {@code author} for
+     * {@code author} and {@code author/name}, but not {@code authorName}), other fields being merged as with
+     * {@link #mergeSelections()}: all of them by default.
+     */
+    String[] groupingSelection() default ALL;
+
 }
@@ -0,0 +1,629 @@
+package com.qudini.gom;
+
+import graphql.GraphQLContext;
+import lombok.RequiredArgsConstructor;
+import org.dataloader.MappedBatchLoader;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+import static java.util.Collections.singletonMap;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static lombok.AccessLevel.PACKAGE;
+import static lombok.AccessLevel.PRIVATE;
+
+@RequiredArgsConstructor(access = PACKAGE)
+final class BatchedLoader implements MappedBatchLoader<DataLoaderKey, Object> {
+
+    private final InvocationPlan plan;
+
+    private final Converters converters;
+
+    private final Batched batched;
+
+    private final Grouping grouping;
+
+    private final Executor executor;
+
+    @Nullable
+    private final KeyExtractor keyExtractor;
+
+    @Nullable
+    private final LatencyTracker latencies;
+
+    @Nullable
+    private final ResolverCache cache;
+
+    private final ResolverMetrics metrics;
+
+    /**
+     * The sources of a chunk as passed to the resolver, when they are hashed and compared by their key.
+     */
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static final class KeyedSources extends AbstractSet<Object> {
+
+        private final KeyExtractor keyExtractor;
+
+        private final Map<Object, DataLoaderKey> keysBySourceKey;
+
+        @Override
+        public Iterator<Object> iterator() {
+            Iterator<DataLoaderKey> keys = keysBySourceKey.values().iterator();
+            return new Iterator<Object>() {
+
+                @Override
+                public boolean hasNext() {
+                    return keys.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    return keys.next().getSource();
+                }
+
+            };
+        }
+
+        @Override
+        public boolean contains(Object source) {
+            return source != null && keysBySourceKey.containsKey(keyExtractor.extract(source));
+        }
+
+        @Override
+        public int size() {
+            return keysBySourceKey.size();
+        }
+
+    }
+
+    /**
+     * The sources of a chunk along with their own arguments, as passed to the resolver taking them as a
+     * {@code Map<Source, Arguments>}: looked up by their key when they have one.
+     */
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static final class SourceArguments extends AbstractMap<Object, Arguments> {
+
+        @Nullable
+        private final KeyExtractor keyExtractor;
+
+        private final Map<Object, DataLoaderKey> keysBySourceKey;
+
+        @Override
+        public Set<Entry<Object, Arguments>> entrySet() {
+            return new AbstractSet<Entry<Object, Arguments>>() {
+
+                @Override
+                public Iterator<Entry<Object, Arguments>> iterator() {
+                    Iterator<DataLoaderKey> keys = keysBySourceKey.values().iterator();
+                    return new Iterator<Entry<Object, Arguments>>() {
+
+                        @Override
+                        public boolean hasNext() {
+                            return keys.hasNext();
+                        }
+
+                        @Override
+                        public Entry<Object, Arguments> next() {
+                            DataLoaderKey key = keys.next();
+                            return new SimpleImmutableEntry<>(key.getSource(), key.getDiscriminator().getArguments());
+                        }
+
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return keysBySourceKey.size();
+                }
+
+            };
+        }
+
+        @Nullable
+        @Override
+        public Arguments get(Object source) {
+            DataLoaderKey key = getKey(source);
+            return key == null ? null : key.getDiscriminator().getArguments();
+        }
+
+        @Override
+        public boolean containsKey(Object source) {
+            return getKey(source) != null;
+        }
+
+        @Override
+        public int size() {
+            return keysBySourceKey.size();
+        }
+
+        @Nullable
+        private DataLoaderKey getKey(@Nullable Object source) {
+            if (source == null) {
+                return null;
+            }
+            return keysBySourceKey.get(keyExtractor == null ? source : keyExtractor.extract(source));
+        }
+
+    }
+
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static final class Chunk {
+
+        private final Selection selection;
+
+        private final Map<Arguments, Map<Object, DataLoaderKey>> keysByArguments;
+
+        /**
+         * The keys sharing their grouped arguments and source key with another key of the chunk, which only happens when
+         * not all the arguments and selection discriminate them: they get the same result.
+         */
+        private final List<DataLoaderKey> sharingKeys;
+
+        private final int size;
+
+    }
+
+    @Override
+    public CompletionStage<Map<DataLoaderKey, Object>> load(Set<DataLoaderKey> keys) {
+        metrics.recordBatch();
+        GraphQLContext context = null;
+        Map<DataLoaderKey, Object> cachedResults = new HashMap<>();
+        Map<Object, List<DataLoaderKey>> keysByGroup = new HashMap<>();
+        Map<DataLoaderKey.Discriminator, DataLoaderKey.Discriminator> groupedDiscriminators = new IdentityHashMap<>();
+        for (DataLoaderKey key : keys) {
+            context = failIfDifferent(context, key.getContext());
+            Object cachedResult = cache == null ? null : cache.get(key);
+            if (cachedResult == null) {
+                DataLoaderKey.Discriminator groupedDiscriminator = groupedDiscriminators.computeIfAbsent(
+                        key.getDiscriminator(),
+                        grouping::getDiscriminator
+                );
+                keysByGroup.computeIfAbsent(group(groupedDiscriminator), group -> new ArrayList<>()).add(key);
+            } else {
+                cachedResults.put(key, cachedResult);
+            }
+        }
+        if (keysByGroup.isEmpty()) {
+            return completedFuture(cachedResults);
+        }
+        int mergedGroups = 0;
+        List<Chunk> chunks = new ArrayList<>();
+        for (List<DataLoaderKey> groupedKeys : keysByGroup.values()) {
+            mergedGroups += countMergedGroups(groupedKeys);
+            getKeysBySelection(groupedKeys).forEach((selection, selectionKeys) -> split(
+                    selection,
+                    selectionKeys,
+                    groupedDiscriminators,
+                    chunks
+            ));
+        }
+        if (mergedGroups > 0) {
+            metrics.recordMergedGroups(mergedGroups);
+        }
+        GraphQLContext chunkContext = context;
+        boolean fanOut = chunks.size() > 1 && batched.maxParallelism() > 1 && !plan.isBlocking();
+        List<Supplier<CompletableFuture<Map<Arguments, Map<Object, Object>>>>> tasks = chunks
+                .stream()
+                .map(chunk -> (Supplier<CompletableFuture<Map<Arguments, Map<Object, Object>>>>) () -> call(chunk, chunkContext, fanOut))
+                .collect(toList());
+        int maxConcurrency = fanOut
+                ? Math.min(batched.maxConcurrentChunks(), batched.maxParallelism())
+                : batched.maxConcurrentChunks();
+        return parallelise(throttle(tasks, maxConcurrency))
+                .thenApply(resultsByChunk -> {
+                    Map<DataLoaderKey, Object> results = new HashMap<>(capacity(keys.size()));
+                    results.putAll(cachedResults);
+                    for (int i = 0; i < resultsByChunk.size(); i++) {
+                        Chunk chunk = chunks.get(i);
+                        Map<Arguments, Map<Object, DataLoaderKey>> keysByArguments = chunk.keysByArguments;
+                        resultsByChunk.get(i).forEach((arguments, resultsBySource) -> {
+                            Map<Object, DataLoaderKey> keysBySourceKey = keysByArguments.get(arguments);
+                            if (keysBySourceKey != null && resultsBySource != null) {
+                                resultsBySource.forEach((sourceKey, result) -> {
+                                    DataLoaderKey key = keysBySourceKey.get(sourceKey);
+                                    if (key != null) {
+                                        store(results, key, result);
+                                    }
+                                });
+                            }
+                        });
+                        for (DataLoaderKey sharingKey : chunk.sharingKeys) {
+                            DataLoaderKey key = keysByArguments
+                                    .get(groupedDiscriminators.get(sharingKey.getDiscriminator()).getArguments())
+                                    .get(sharingKey.getSourceKey());
+                            if (results.containsKey(key)) {
+                                store(results, sharingKey, results.get(key));
+                            }
+                        }
+                    }
+                    return results;
+                });
+    }
+
+    private void store(Map<DataLoaderKey, Object> results, DataLoaderKey key, @Nullable Object result) {
+        results.put(key, result);
+        if (cache != null && result != null) {
+            cache.put(key, result);
+        }
+    }
+
+    /**
+     * Keys of the same group are passed to the same resolver call: when the resolver takes its sources grouped by
+     * arguments, only the selection splits them. Discriminators being interned per field, they only get grouped once
+     * per field rather than once per key.
+     */
+    private Object group(DataLoaderKey.Discriminator groupedDiscriminator) {
+        return plan.isArgumentsGrouped() ? groupedDiscriminator.getSelection() : groupedDiscriminator;
+    }
+
+    /**
+     * Counts how many more calls the given keys would have needed without normalizing their arguments.
+     */
+    private int countMergedGroups(List<DataLoaderKey> keys) {
+        if (keys.stream().allMatch(key -> key.getOriginalArguments() == null)) {
+            return 0;
+        }
+        Set<Arguments> arguments = new HashSet<>();
+        Set<Arguments> originalArguments = new HashSet<>();
+        for (DataLoaderKey key : keys) {
+            Arguments normalizedArguments = grouping.getArguments(key.getDiscriminator().getArguments());
+            arguments.add(normalizedArguments);
+            originalArguments.add(key.getOriginalArguments() == null
+                    ? normalizedArguments
+                    : grouping.getArguments(key.getOriginalArguments()));
+        }
+        return originalArguments.size() - arguments.size();
+    }
+
+    /**
+     * The keys of a group by the selection passed to their calls: the union of their selections when they are merged,
+     * unless some select the same alias of a field with different arguments, in which case they are split into as few
+     * groups as needed for each key to get the arguments it asked for.
+     */
+    private Map<Selection, List<DataLoaderKey>> getKeysBySelection(List<DataLoaderKey> keys) {
+        if (!grouping.isSelectionMerged()) {
+            return singletonMap(keys.get(0).getDiscriminator().getSelection(), keys);
+        }
+        Map<Selection, List<DataLoaderKey>> keysBySelection = new LinkedHashMap<>();
+        for (DataLoaderKey key : keys) {
+            keysBySelection.computeIfAbsent(key.getDiscriminator().getSelection(), selection -> new ArrayList<>()).add(key);
+        }
+        if (keysBySelection.size() == 1) {
+            return keysBySelection;
+        }
+        List<List<Selection>> compatibleSelections = new ArrayList<>();
+        for (Selection selection : keysBySelection.keySet()) {
+            List<Selection> compatible = null;
+            for (List<Selection> selections : compatibleSelections) {
+                if (selections.stream().noneMatch(other -> DefaultSelection.conflict(selection, other))) {
+                    compatible = selections;
+                    break;
+                }
+            }
+            if (compatible == null) {
+                compatible = new ArrayList<>();
+                compatibleSelections.add(compatible);
+            }
+            compatible.add(selection);
+        }
+        Map<Selection, List<DataLoaderKey>> keysByUnitedSelection = new LinkedHashMap<>(capacity(compatibleSelections.size()));
+        for (List<Selection> selections : compatibleSelections) {
+            List<DataLoaderKey> unitedKeys = new ArrayList<>();
+            selections.forEach(selection -> unitedKeys.addAll(keysBySelection.get(selection)));
+            keysByUnitedSelection.put(
+                    selections.size() == 1 ? selections.get(0) : DefaultSelection.union(selections),
+                    unitedKeys
+            );
+        }
+        return keysByUnitedSelection;
+    }
+
+    /**
+     * When the resolver takes the arguments of each source, a source can only be passed once per call: the keys of a
+     * source already passed with other arguments are then split into further chunks.
+     */
+    private void split(
+            Selection selection,
+            List<DataLoaderKey> keys,
+            Map<DataLoaderKey.Discriminator, DataLoaderKey.Discriminator> groupedDiscriminators,
+            List<Chunk> chunks
+    ) {
+        int maxBatchSize = batched.maxBatchSize();
+        List<DataLoaderKey> conflictingKeys = new ArrayList<>(0);
+        for (int from = 0; from < keys.size(); from += maxBatchSize) {
+            int to = Math.min(keys.size(), from + maxBatchSize);
+            int size = to - from;
+            Map<Arguments, Map<Object, DataLoaderKey>> keysByArguments = new HashMap<>();
+            List<DataLoaderKey> sharingKeys = new ArrayList<>(0);
+            int conflictingKeyCount = conflictingKeys.size();
+            for (DataLoaderKey key : keys.subList(from, to)) {
+                DataLoaderKey sharedKey = keysByArguments
+                        .computeIfAbsent(
+                                groupedDiscriminators.get(key.getDiscriminator()).getArguments(),
+                                arguments -> plan.isArgumentsGrouped() ? new HashMap<>() : new HashMap<>(capacity(size))
+                        )
+                        .putIfAbsent(key.getSourceKey(), key);
+                if (sharedKey == null) {
+                    continue;
+                }
+                if (plan.isArgumentsBySource()
+                        && !sharedKey.getDiscriminator().getArguments().equals(key.getDiscriminator().getArguments())) {
+                    conflictingKeys.add(key);
+                } else {
+                    sharingKeys.add(key);
+                }
+            }
+            chunks.add(new Chunk(selection, keysByArguments, sharingKeys, size - (conflictingKeys.size() - conflictingKeyCount)));
+        }
+        if (!conflictingKeys.isEmpty()) {
+            split(selection, conflictingKeys, groupedDiscriminators, chunks);
+        }
+    }
+
+    /**
+     * Gives up on the attempts once timed out, so that they don't hold their concurrency limit slot any longer.
+     */
+    private CompletableFuture<Map<Arguments, Map<Object, Object>>> call(Chunk chunk, GraphQLContext context, boolean fanOut) {
+        CompletableFuture<Map<Arguments, Map<Object, Object>>> future = latencies == null
+                ? attempt(chunk, context, fanOut)
+                : hedge(chunk, context, fanOut);
+        return batched.timeoutMillis() > 0
+                ? Scheduler.within(
+                        future,
+                        MILLISECONDS.toNanos(batched.timeoutMillis()),
+                        () -> format("Batched call timed out after %d ms", batched.timeoutMillis())
+                )
+                : future;
+    }
+
+    /**
+     * Duplicates the call on the executor if it didn't complete within the tracked latency percentile, the first of both
+     * to succeed winning: it only fails once both did. The other one is given up on once it is settled.
+     */
+    private CompletableFuture<Map<Arguments, Map<Object, Object>>> hedge(Chunk chunk, GraphQLContext context, boolean fanOut) {
+        long startTime = System.nanoTime();
+        CompletableFuture<Map<Arguments, Map<Object, Object>>> future = attempt(chunk, context, fanOut);
+        long delay = latencies.getEstimate();
+        if (delay < 0 || future.isDone()) {
+            future.whenComplete((value, error) -> recordLatency(startTime, error));
+            return future;
+        }
+        CompletableFuture<Map<Arguments, Map<Object, Object>>> result = cancelling(future, new CompletableFuture<>());
+        AtomicBoolean hedged = new AtomicBoolean(false);
+        AtomicBoolean succeeded = new AtomicBoolean(false);
+        AtomicInteger failures = new AtomicInteger(0);
+        ScheduledFuture<?> hedging = Scheduler.schedule(
+                () -> {
+                    synchronized (hedged) {
+                        if (future.isDone()) {
+                            return;
+                        }
+                        hedged.set(true);
+                    }
+                    metrics.recordHedge();
+                    CompletableFuture<Map<Arguments, Map<Object, Object>>> hedge = invokeOnExecutor(chunk, context);
+                    cancelling(hedge, result);
+                    hedge.whenComplete((value, error) -> {
+                        if (error == null) {
+                            if (succeeded.compareAndSet(false, true)) {
+                                metrics.recordWonHedge();
+                                result.complete(value);
+                            }
+                        } else if (failures.incrementAndGet() == 2) {
+                            result.completeExceptionally(error);
+                        }
+                    });
+                },
+                delay
+        );
+        future.whenComplete((value, error) -> {
+            hedging.cancel(false);
+            recordLatency(startTime, error);
+            if (error == null) {
+                if (succeeded.compareAndSet(false, true)) {
+                    result.complete(value);
+                }
+            } else {
+                boolean failed;
+                synchronized (hedged) {
+                    failed = !hedged.get() || failures.incrementAndGet() == 2;
+                }
+                if (failed) {
+                    result.completeExceptionally(error);
+                }
+            }
+        });
+        return result;
+    }
+
+    private void recordLatency(long startTime, @Nullable Throwable error) {
+        if (error == null) {
+            latencies.record(System.nanoTime() - startTime);
+        }
+    }
+
+    private CompletableFuture<Map<Arguments, Map<Object, Object>>> attempt(Chunk chunk, GraphQLContext context, boolean onExecutor) {
+        return onExecutor ? invokeOnExecutor(chunk, context) : invoke(chunk, context);
+    }
+
+    private CompletableFuture<Map<Arguments, Map<Object, Object>>> invokeOnExecutor(Chunk chunk, GraphQLContext context) {
+        CompletableFuture<CompletableFuture<Map<Arguments, Map<Object, Object>>>> invocation = supplyAsync(
+                () -> invoke(chunk, context),
+                executor
+        );
+        CompletableFuture<Map<Arguments, Map<Object, Object>>> result = cancelling(invocation, invocation.thenCompose(identity()));
+        invocation.thenAccept(attempt -> cancelling(attempt, result));
+        return result;
+    }
+
+    private CompletableFuture<Map<Arguments, Map<Object, Object>>> invoke(Chunk chunk, GraphQLContext context) {
+        metrics.recordChunk(chunk.size);
+        if (plan.isArgumentsGrouped()) {
+            Map<Arguments, Set<Object>> sourcesByArguments = new HashMap<>(capacity(chunk.keysByArguments.size()));
+            chunk.keysByArguments.forEach((arguments, keysBySourceKey) -> sourcesByArguments.put(
+                    arguments,
+                    getSources(keysBySourceKey)
+            ));
+            CompletableFuture<Object> invocation = plan
+                    .invoke(unmodifiableMap(sourcesByArguments), DefaultArguments.EMPTY, chunk.selection, converters, context);
+            return cancelling(
+                    invocation,
+                    invocation.thenApply(resultsByArguments -> (Map<Arguments, Map<Object, Object>>) resultsByArguments)
+            );
+        } else {
+            Map.Entry<Arguments, Map<Object, DataLoaderKey>> keysBySourceKey = chunk.keysByArguments.entrySet().iterator().next();
+            CompletableFuture<Object> invocation = plan.invoke(
+                    plan.isArgumentsBySource()
+                            ? new SourceArguments(keyExtractor, keysBySourceKey.getValue())
+                            : getSources(keysBySourceKey.getValue()),
+                    keysBySourceKey.getKey(),
+                    chunk.selection,
+                    converters,
+                    context
+            );
+            return cancelling(
+                    invocation,
+                    invocation.thenApply(resultsBySource -> singletonMap(keysBySourceKey.getKey(), (Map<Object, Object>) resultsBySource))
+            );
+        }
+    }
+
+    private Set<Object> getSources(Map<Object, DataLoaderKey> keysBySourceKey) {
+        return keyExtractor == null
+                ? unmodifiableSet(keysBySourceKey.keySet())
+                : new KeyedSources(keyExtractor, keysBySourceKey);
+    }
+
+    /**
+     * Cancels the given attempt once the given future depending on it completes, for what the attempt holds (e.g. a
+     * concurrency limit slot) to be freed when the future is given up on before the attempt completed.
+     */
+    private static <T, U> CompletableFuture<U> cancelling(CompletableFuture<T> attempt, CompletableFuture<U> future) {
+        future.whenComplete((value, error) -> attempt.cancel(false));
+        return future;
+    }
+
+    /**
+     * Starts the given tasks in order, making sure no more than {@code maxConcurrency} of them are running at the same time.
+     */
+    private static <T> List<CompletableFuture<T>> throttle(List<Supplier<CompletableFuture<T>>> tasks, int maxConcurrency) {
+        if (tasks.size() <= maxConcurrency) {
+            return tasks.stream().map(Supplier::get).collect(toList());
+        }
+        Throttle<T> throttle = new Throttle<>(tasks);
+        for (int i = 0; i < maxConcurrency; i++) {
+            throttle.startNext();
+        }
+        return throttle.futures;
+    }
+
+    /**
+     * Starts the next task once the previous one completed. Synchronous tasks being already complete once started, the
+     * following ones are started in a loop rather than from their completion callback, so that the stack doesn't grow
+     * with the number of tasks.
+     */
+    private static final class Throttle<T> {
+
+        private final List<Supplier<CompletableFuture<T>>> tasks;
+
+        private final List<CompletableFuture<T>> futures;
+
+        private final AtomicInteger next = new AtomicInteger(0);
+
+        private Throttle(List<Supplier<CompletableFuture<T>>> tasks) {
+            this.tasks = tasks;
+            this.futures = tasks.stream().map(task -> new CompletableFuture<T>()).collect(toList());
+        }
+
+        private void startNext() {
+            for (int index = next.getAndIncrement(); index < tasks.size(); index = next.getAndIncrement()) {
+                CompletableFuture<T> future;
+                try {
+                    future = tasks.get(index).get();
+                } catch (RuntimeException | Error e) {
+                    failPending(index, e);
+                    return;
+                }
+                int startedIndex = index;
+                if (!future.isDone()) {
+                    future.whenComplete((result, error) -> {
+                        settle(startedIndex, result, error);
+                        startNext();
+                    });
+                    return;
+                }
+                future.whenComplete((result, error) -> settle(startedIndex, result, error));
+            }
+        }
+
+        private void settle(int index, @Nullable T result, @Nullable Throwable error) {
+            if (error == null) {
+                futures.get(index).complete(result);
+            } else {
+                futures.get(index).completeExceptionally(error);
+            }
+        }
+
+        /**
+         * Fails the task that couldn't be started as well as those that weren't yet, which won't be.
+         */
+        private void failPending(int index, Throwable error) {
+            futures.get(index).completeExceptionally(error);
+            for (int i = next.getAndSet(tasks.size()); i < tasks.size(); i++) {
+                futures.get(i).completeExceptionally(error);
+            }
+        }
+
+    }
+
+    static <T> CompletableFuture<List<T>> parallelise(List<CompletableFuture<T>> futures) {
+        return CompletableFuture
+                .allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(x -> futures
+                        .stream()
+                        .map(CompletableFuture::join)
+                        .collect(toList())
+                );
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+    private static <T> T failIfDifferent(@Nullable T x, T y) {
+        if (x == null || x == y || x.equals(y)) {
+            return y;
+        } else {
+            throw new IllegalStateException(format(
+                    "%s and %s shouldn't have been different",
+                    x,
+                    y
+            ));
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.qudini.gom;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Runs the resolver on the executor given to {@link Gom.Builder#executor}, instead of the thread graphql-java dispatches
+ * from. {@link Gom.Builder#blocking} sets the default for the resolvers not annotated.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Blocking {
+
+    boolean value() default true;
+
+}
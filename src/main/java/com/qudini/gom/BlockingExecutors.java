@@ -0,0 +1,38 @@
+package com.qudini.gom;
+
+import lombok.NoArgsConstructor;
+
+import java.lang.invoke.MethodHandles;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.invoke.MethodType.methodType;
+import static lombok.AccessLevel.PRIVATE;
+
+@NoArgsConstructor(access = PRIVATE)
+final class BlockingExecutors {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger(0);
+
+    /**
+     * A virtual thread per task when running on JDK 21+, looked up at runtime so that GOM can still be built for and run
+     * on Java 8, and a cached pool of daemon threads otherwise.
+     */
+    static Executor newDefaultExecutor() {
+        try {
+            return (ExecutorService) MethodHandles
+                    .publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", methodType(ExecutorService.class))
+                    .invoke();
+        } catch (Throwable e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "gom-blocking-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.qudini.gom;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Caches the results of a {@link Batched} resolver across requests, per source and arguments/selection: only the
+ * sources missing from the cache get passed to the resolver. See {@link Gom#invalidate(String, Object)} to evict them
+ * on change.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Cached {
+
+    /**
+     * How long a result stays cached, in milliseconds.
+     */
+    long ttlMillis();
+
+    /**
+     * The maximum number of results cached, the least recently used ones being evicted first.
+     */
+    int maxEntries() default 10_000;
+
+}
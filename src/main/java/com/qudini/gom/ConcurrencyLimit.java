@@ -0,0 +1,36 @@
+package com.qudini.gom;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Limits how many invocations of a resolver can be running at the same time (a call of a {@link Batched} resolver being
+ * one invocation), so that a slow downstream can't hold every thread and connection. See {@link Gom#getMetrics()} to
+ * monitor it.
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface ConcurrencyLimit {
+
+    /**
+     * The maximum number of invocations running at the same time.
+     */
+    int value();
+
+    /**
+     * The maximum number of invocations waiting for a running one to complete, the others failing fast: none by default.
+     */
+    int maxQueueSize() default 0;
+
+    /**
+     * Whether the limit adapts to the observed latency, between 1 and {@link #value()}: increased by one when an
+     * invocation completes within {@link #latencyThresholdMillis()}, decreased by 10% otherwise.
+     */
+    boolean adaptive() default false;
+
+    long latencyThresholdMillis() default 1000;
+
+}
@@ -0,0 +1,128 @@
+package com.qudini.gom;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+
+/**
+ * Enforces a {@link ConcurrencyLimit}, with an AIMD limit when adaptive.
+ */
+final class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final MethodInvoker methodInvoker;
+
+    private final ConcurrencyLimit concurrencyLimit;
+
+    private final ResolverMetrics metrics;
+
+    private final long latencyThreshold;
+
+    private final Queue<Runnable> queue = new ArrayDeque<>();
+
+    private int limit;
+
+    private int inFlight;
+
+    ConcurrencyLimiter(MethodInvoker methodInvoker, ConcurrencyLimit concurrencyLimit, ResolverMetrics metrics) {
+        if (concurrencyLimit.value() < 1 || concurrencyLimit.maxQueueSize() < 0 || concurrencyLimit.latencyThresholdMillis() < 0) {
+            throw new IllegalStateException(format("Invalid concurrency limit: %s", methodInvoker));
+        }
+        this.methodInvoker = methodInvoker;
+        this.concurrencyLimit = concurrencyLimit;
+        this.metrics = metrics;
+        this.latencyThreshold = TimeUnit.MILLISECONDS.toNanos(concurrencyLimit.latencyThresholdMillis());
+        this.limit = concurrencyLimit.value();
+        metrics.recordConcurrency(limit, inFlight);
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Runnable start = () -> start(task, future);
+        synchronized (this) {
+            if (inFlight >= limit) {
+                if (queue.size() < concurrencyLimit.maxQueueSize()) {
+                    queue.add(start);
+                } else {
+                    metrics.recordRejection();
+                    future.completeExceptionally(new IllegalStateException(format(
+                            "Concurrency limit of %s reached",
+                            methodInvoker
+                    )));
+                }
+                return future;
+            }
+            inFlight++;
+            metrics.recordConcurrency(limit, inFlight);
+        }
+        start.run();
+        return future;
+    }
+
+    /**
+     * The slot is released as soon as either the task or the returned future completes, the latter being completed by
+     * its caller when giving up on it (e.g. on timeout): a task that never completes then doesn't hold it forever.
+     */
+    private <T> void start(Supplier<CompletableFuture<T>> task, CompletableFuture<T> future) {
+        if (future.isDone()) {
+            release(-1);
+            return;
+        }
+        long startTime = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean(false);
+        CompletableFuture<T> taskFuture;
+        try {
+            taskFuture = task.get();
+        } catch (Throwable e) {
+            taskFuture = new CompletableFuture<>();
+            taskFuture.completeExceptionally(e);
+        }
+        taskFuture.whenComplete((result, error) -> {
+            if (released.compareAndSet(false, true)) {
+                release(System.nanoTime() - startTime);
+            }
+            if (error == null) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(error);
+            }
+        });
+        CompletableFuture<T> startedTaskFuture = taskFuture;
+        future.whenComplete((result, error) -> {
+            if (released.compareAndSet(false, true)) {
+                release(System.nanoTime() - startTime);
+                startedTaskFuture.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Adapts the limit to the given latency unless negative, when the invocation was given up on before being started.
+     */
+    private void release(long latency) {
+        Runnable next = null;
+        synchronized (this) {
+            inFlight--;
+            if (concurrencyLimit.adaptive() && latency >= 0) {
+                limit = latency <= latencyThreshold
+                        ? Math.min(concurrencyLimit.value(), limit + 1)
+                        : Math.max(1, (int) (limit * BACKOFF_RATIO));
+            }
+            if (inFlight < limit && !queue.isEmpty()) {
+                next = queue.poll();
+                inFlight++;
+            }
+            metrics.recordConcurrency(limit, inFlight);
+        }
+        if (next != null) {
+            next.run();
+        }
+    }
+
+}
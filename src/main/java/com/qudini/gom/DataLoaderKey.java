@@ -6,37 +6,70 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import javax.annotation.Nullable;
+
 import static lombok.AccessLevel.PACKAGE;
-import static lombok.AccessLevel.PRIVATE;
 
 @Getter(PACKAGE)
 @EqualsAndHashCode
 final class DataLoaderKey {
 
-    @RequiredArgsConstructor(access = PRIVATE)
+    /**
+     * Interned per field and execution, so that comparing the discriminators of sibling sources usually comes down to
+     * comparing references, and hashing them to reading their cached hash.
+     */
+    @RequiredArgsConstructor(access = PACKAGE)
     @Getter(PACKAGE)
-    @EqualsAndHashCode
+    @EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
     static final class Discriminator {
 
         private final Arguments arguments;
 
         private final Selection selection;
 
+        /**
+         * The arguments as they were before being normalized, if it changed them.
+         */
+        @Nullable
+        @EqualsAndHashCode.Exclude
+        private final Arguments originalArguments;
+
+        Discriminator(Arguments arguments, Selection selection) {
+            this(arguments, selection, null);
+        }
+
     }
 
+    /**
+     * Left out of the equality when the sources have a {@link Batched#key()}, only their key being compared then.
+     */
+    @EqualsAndHashCode.Exclude
     private final Object source;
 
+    /**
+     * What the sources are grouped by when passed to the resolver, and what its results are keyed by: either the source
+     * itself or its key, extracted (and boxed if primitive) once per source.
+     */
+    @Nullable
+    private final Object sourceKey;
+
     private final Discriminator discriminator;
 
     private final GraphQLContext context;
 
-    DataLoaderKey(DataFetchingEnvironment environment, int selectionDepth) {
+    /**
+     * Part of the equality so that the data loader doesn't cache sources only sharing their normalized arguments as one
+     * key: they get resolved by the same call anyway, which is then recorded as merged groups.
+     */
+    @Nullable
+    private final Arguments originalArguments;
+
+    DataLoaderKey(DataFetchingEnvironment environment, Discriminator discriminator, @Nullable KeyExtractor keyExtractor) {
         this.source = environment.getSource();
-        this.discriminator = new Discriminator(
-                new DefaultArguments(environment),
-                new DefaultSelection(environment, selectionDepth)
-        );
+        this.sourceKey = keyExtractor == null ? source : keyExtractor.extract(source);
+        this.discriminator = discriminator;
         this.context = environment.getGraphQlContext();
+        this.originalArguments = discriminator.getOriginalArguments();
     }
 
 }
@@ -1,5 +1,6 @@
 package com.qudini.gom;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.dataloader.DataLoader;
 import org.dataloader.DataLoaderRegistry;
@@ -9,8 +10,15 @@ import java.util.function.Supplier;
 import static lombok.AccessLevel.PACKAGE;
 
 @RequiredArgsConstructor(access = PACKAGE)
+@Getter(PACKAGE)
 final class DataLoaderRegistrar {
 
+    /**
+     * The position of this registrar among those of its {@link Gom}, where a {@link LazyDataLoaderRegistry} keeps its
+     * data loader.
+     */
+    private final int index;
+
     private final String dataLoaderKey;
 
     private final Supplier<DataLoader<DataLoaderKey, Object>> dataLoaderSupplier;
@@ -19,4 +27,13 @@ final class DataLoaderRegistrar {
         registry.register(dataLoaderKey, dataLoaderSupplier.get());
     }
 
+    /**
+     * Gets the data loader from the given registry, registering it first if it isn't yet.
+     */
+    DataLoader<DataLoaderKey, Object> getDataLoader(DataLoaderRegistry registry) {
+        return registry instanceof LazyDataLoaderRegistry
+                ? ((LazyDataLoaderRegistry) registry).getDataLoader(this)
+                : registry.computeIfAbsent(dataLoaderKey, key -> dataLoaderSupplier.get());
+    }
+
 }
@@ -2,44 +2,117 @@ package com.qudini.gom;
 
 import graphql.schema.DataFetchingEnvironment;
 import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.toList;
+import static lombok.AccessLevel.PRIVATE;
 
-@EqualsAndHashCode
+/**
+ * An immutable view over the arguments coerced by graphql-java, which are neither copied nor converted upfront: the
+ * lists, enums and nested inputs are only wrapped or looked up when read, then kept for the next reads.
+ */
+@EqualsAndHashCode(cacheStrategy = EqualsAndHashCode.CacheStrategy.LAZY)
 final class DefaultArguments implements Arguments {
 
+    static final DefaultArguments EMPTY = new DefaultArguments(emptyMap());
+
     private static final String UNEXPECTED_NULL_ARGUMENT_MESSAGE_FORMAT = "'%s' must not be null";
 
+    private static final Object LIST = new Object();
+
+    private static final Object ENUM = new Object();
+
+    private static final Object ENUM_ARRAY = new Object();
+
+    private static final Object INPUT = new Object();
+
+    private static final Object INPUT_ARRAY = new Object();
+
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static final class View {
+
+        private final Object kind;
+
+        /**
+         * The enum class of the enum views.
+         */
+        @Nullable
+        private final Class<?> type;
+
+        private final Object value;
+
+    }
+
     private final Map<String, Object> arguments;
 
+    @EqualsAndHashCode.Exclude
+    private volatile Map<String, View> views;
+
     DefaultArguments(Map<String, Object> arguments) {
-        Map<String, Object> mutableArguments = new HashMap<>();
-        arguments.forEach((key, value) -> mutableArguments.put(
-                key,
-                value instanceof List<?> ? unmodifiableList((List<?>) value) : value
-        ));
-        this.arguments = unmodifiableMap(mutableArguments);
+        this.arguments = unmodifiableMap(arguments);
     }
 
     DefaultArguments(DataFetchingEnvironment environment) {
         this(environment.getArguments());
     }
 
+    /**
+     * Gives the view of the given kind (and enum type) over the given argument, creating it if it's the first time it's
+     * read this way. An argument being only ever read the same way in practice, a view of another kind replacing it is
+     * fine.
+     */
+    private <T> T getNullView(String name, Object kind, @Nullable Class<?> type, Function<Object, T> factory) {
+        Map<String, View> currentViews = views;
+        View view = currentViews == null ? null : currentViews.get(name);
+        if (view != null && view.kind == kind && view.type == type) {
+            // views of the same kind and type are created by the same factory
+            @SuppressWarnings("unchecked")
+            T viewValue = (T) view.value;
+            return viewValue;
+        }
+        Object value = arguments.get(name);
+        if (value == null) {
+            return null;
+        }
+        T viewValue = factory.apply(value);
+        if (currentViews == null) {
+            synchronized (this) {
+                currentViews = views;
+                if (currentViews == null) {
+                    currentViews = new ConcurrentHashMap<>();
+                    views = currentViews;
+                }
+            }
+        }
+        currentViews.put(name, new View(kind, type, viewValue));
+        return viewValue;
+    }
+
+    /**
+     * The caller knowing the type of the argument it reads, it is trusted with it.
+     */
+    @SuppressWarnings("unchecked")
     private <T> T getNull(String name) {
-        return (T) arguments.get(name);
+        Object value = arguments.get(name);
+        return (T) (value instanceof List<?> ? getNullView(name, LIST, null, list -> unmodifiableList((List<?>) list)) : value);
     }
 
     @Override
@@ -63,8 +136,7 @@ final class DefaultArguments implements Arguments {
     }
 
     private <T extends Enum<T>> T getNullEnum(String name, Class<T> clazz) {
-        String key = getNull(name);
-        return key == null ? null : Enum.valueOf(clazz, key);
+        return getNullView(name, ENUM, clazz, key -> Enum.valueOf(clazz, (String) key));
     }
 
     @Override
@@ -88,8 +160,10 @@ final class DefaultArguments implements Arguments {
     }
 
     private <T extends Enum<T>> List<T> getNullEnumArray(String name, Class<T> clazz) {
-        List<String> enumArray = getNull(name);
-        return enumArray == null ? null : enumArray.stream().map(key -> Enum.valueOf(clazz, key)).collect(collectingAndThen(toList(), Collections::unmodifiableList));
+        return getNullView(name, ENUM_ARRAY, clazz, enumArray -> ((List<?>) enumArray)
+                .stream()
+                .map(key -> Enum.valueOf(clazz, (String) key))
+                .collect(collectingAndThen(toList(), Collections::unmodifiableList)));
     }
 
     @Nonnull
@@ -113,8 +187,7 @@ final class DefaultArguments implements Arguments {
     }
 
     private Arguments getNullInput(String name) {
-        Map<String, Object> input = getNull(name);
-        return input == null ? null : new DefaultArguments(input);
+        return getNullView(name, INPUT, null, DefaultArguments::ofInput);
     }
 
     @Override
@@ -138,8 +211,10 @@ final class DefaultArguments implements Arguments {
     }
 
     private List<Arguments> getNullInputArray(String name) {
-        List<Map<String, Object>> inputArray = getNull(name);
-        return inputArray == null ? null : inputArray.stream().map(DefaultArguments::new).collect(collectingAndThen(toList(), Collections::unmodifiableList));
+        return getNullView(name, INPUT_ARRAY, null, inputArray -> ((List<?>) inputArray)
+                .stream()
+                .map(DefaultArguments::ofInput)
+                .collect(collectingAndThen(toList(), Collections::unmodifiableList)));
     }
 
     @Override
@@ -162,6 +237,27 @@ final class DefaultArguments implements Arguments {
                 : Optional.empty();
     }
 
+    /**
+     * Nested inputs being coerced by graphql-java into maps keyed by field name, they are read as such.
+     */
+    @SuppressWarnings("unchecked")
+    private static Arguments ofInput(Object input) {
+        return new DefaultArguments((Map<String, Object>) input);
+    }
+
+    /**
+     * Keeps the arguments with the given names only.
+     */
+    DefaultArguments retain(Set<String> names) {
+        Map<String, Object> retainedArguments = new HashMap<>();
+        arguments.forEach((name, value) -> {
+            if (names.contains(name)) {
+                retainedArguments.put(name, value);
+            }
+        });
+        return new DefaultArguments(retainedArguments);
+    }
+
     @Override
     public int size() {
         return arguments.size();
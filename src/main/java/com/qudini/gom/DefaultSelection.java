@@ -1,79 +1,497 @@
 package com.qudini.gom;
 
 import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import graphql.schema.SelectedField;
-import lombok.EqualsAndHashCode;
 
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.IntStream;
+import java.util.TreeSet;
 import java.util.stream.Stream;
 
-import static java.lang.String.join;
-import static java.util.Collections.nCopies;
-import static java.util.Collections.unmodifiableSet;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
-@EqualsAndHashCode
+/**
+ * A tree of selected fields, each node being the sub-selection of its parent's field: sub-selections are shared rather
+ * than copied, and nodes built from a query only get expanded the first time they are looked into. Path segments are
+ * interned and the hash is computed once.
+ * <p>
+ * Fields selected for several types of a polymorphic field (through fragments) share the same node, which knows the
+ * types it was selected for so that {@link #forType(String)} can tell them apart, merged selections included. The
+ * arguments and aliases of the fields are part of the equality, as resolvers fetching nested fields themselves depend on
+ * them, and so are the types of the fields only selected for some of them: fields selected for all of them don't keep
+ * their types, so that selections built from qualified names still compare equal to those without fragments.
+ */
 final class DefaultSelection implements Selection {
 
-    private final Set<String> fields;
+    /**
+     * The mutable counterpart of a node, for selections built from qualified names.
+     */
+    private static final class Builder {
+
+        private boolean selected;
+
+        private final Map<String, Builder> children = new LinkedHashMap<>();
+
+        private void add(String field) {
+            Builder node = this;
+            int from = 0;
+            int to;
+            while ((to = field.indexOf('/', from)) >= 0) {
+                node = node.children.computeIfAbsent(field.substring(from, to).intern(), name -> new Builder());
+                from = to + 1;
+            }
+            node.children.computeIfAbsent(field.substring(from).intern(), name -> new Builder()).selected = true;
+        }
+
+        private Map<String, DefaultSelection> buildChildren() {
+            Map<String, DefaultSelection> builtChildren = new LinkedHashMap<>();
+            children.forEach((name, child) -> builtChildren.put(
+                    name,
+                    new DefaultSelection(child.selected, child.buildChildren(), emptyMap(), emptyList())
+            ));
+            return unmodifiableMap(builtChildren);
+        }
+
+    }
+
+    static final DefaultSelection EMPTY = new DefaultSelection(false, emptyMap(), emptyMap(), emptyList());
+
+    /**
+     * Whether the field of this node is selected itself, rather than only being the parent of selected fields: it is
+     * part of its parent's selection, not of its own.
+     */
+    private final boolean selected;
+
+    /**
+     * The selection sets the children are expanded from, dropped once they are so that the node doesn't keep the
+     * execution they come from.
+     */
+    @Nullable
+    private volatile List<DataFetchingFieldSelectionSet> selectionSets;
+
+    /**
+     * How many levels below this node can still be expanded.
+     */
+    private final int depth;
+
+
+    /**
+     * The arguments of each selection of the field of this node, keyed by alias, or nothing if it is selected once,
+     * without alias nor arguments.
+     */
+    private final Map<String, Arguments> argumentsByAlias;
+
+    /**
+     * The object types the field of this node was selected for, sorted, or nothing if it was selected for all of them
+     * (or they aren't known), in which case it is kept for all of them.
+     */
+    private final List<String> objectTypeNames;
+
+    @Nullable
+    private volatile Map<String, DefaultSelection> children;
+
+    private int size = -1;
+
+    private int hash;
+
+    private DefaultSelection(
+            boolean selected,
+            Map<String, DefaultSelection> children,
+            Map<String, Arguments> argumentsByAlias,
+            List<String> objectTypeNames
+    ) {
+        this.selected = selected;
+        this.selectionSets = null;
+        this.depth = 0;
+        this.argumentsByAlias = argumentsByAlias;
+        this.objectTypeNames = objectTypeNames;
+        this.children = children;
+    }
+
+    private DefaultSelection(
+            boolean selected,
+            List<DataFetchingFieldSelectionSet> selectionSets,
+            int depth,
+            Map<String, Arguments> argumentsByAlias,
+            List<String> objectTypeNames
+    ) {
+        this.selected = selected;
+        this.selectionSets = selectionSets;
+        this.depth = depth;
+        this.argumentsByAlias = argumentsByAlias;
+        this.objectTypeNames = objectTypeNames;
+    }
 
     DefaultSelection(Set<String> fields) {
-        this.fields = unmodifiableSet(fields);
+        this(false, build(fields), emptyMap(), emptyList());
     }
 
     DefaultSelection(DataFetchingEnvironment environment, int depth) {
-        this(extractFields(environment, depth));
+        this(true, singletonList(environment.getSelectionSet()), depth, emptyMap(), emptyList());
+    }
+
+    /**
+     * The selection sets being read before the children and dropped after them, they are still there when the children
+     * aren't.
+     */
+    private Map<String, DefaultSelection> getChildren() {
+        List<DataFetchingFieldSelectionSet> currentSelectionSets = selectionSets;
+        Map<String, DefaultSelection> expandedChildren = children;
+        if (expandedChildren == null) {
+            expandedChildren = expand(currentSelectionSets, depth);
+            children = expandedChildren;
+            selectionSets = null;
+        }
+        return expandedChildren;
+    }
+
+    /**
+     * Expands the whole tree, so that it only holds derived data once shared beyond its execution (e.g. cached).
+     */
+    static void expandAll(Selection selection) {
+        if (selection instanceof DefaultSelection) {
+            ((DefaultSelection) selection).getChildren().values().forEach(DefaultSelection::expandAll);
+        }
     }
 
     @Override
     public int size() {
-        return fields.size();
+        if (size < 0) {
+            int count = 0;
+            for (DefaultSelection child : getChildren().values()) {
+                count += (child.selected ? 1 : 0) + child.size();
+            }
+            size = count;
+        }
+        return size;
+    }
+
+    /**
+     * Finds the node of the given qualified field, if selected or parent of selected fields.
+     */
+    @Nullable
+    private DefaultSelection find(String field) {
+        DefaultSelection node = this;
+        int from = 0;
+        int to;
+        while (node != null && (to = field.indexOf('/', from)) >= 0) {
+            node = node.getChildren().get(field.substring(from, to));
+            from = to + 1;
+        }
+        return node == null ? null : node.getChildren().get(field.substring(from));
     }
 
     @Override
     public boolean contains(String field) {
-        return fields.contains(field);
+        DefaultSelection node = find(field);
+        return node != null && node.selected;
+    }
+
+    @Override
+    public Map<String, Arguments> getArguments(String field) {
+        DefaultSelection node = find(field);
+        return node == null ? emptyMap() : node.getArgumentsByAlias(field.substring(field.lastIndexOf('/') + 1));
+    }
+
+    private Map<String, Arguments> getArgumentsByAlias(String name) {
+        if (!selected) {
+            return emptyMap();
+        }
+        return argumentsByAlias.isEmpty() ? singletonMap(name, DefaultArguments.EMPTY) : argumentsByAlias;
     }
 
     @Override
     public Stream<String> stream() {
-        return fields.stream();
+        return getChildren()
+                .entrySet()
+                .stream()
+                .flatMap(child -> {
+                    String prefix = child.getKey() + "/";
+                    Stream<String> descendants = child.getValue().stream().map(prefix::concat);
+                    return child.getValue().selected ? Stream.concat(Stream.of(child.getKey()), descendants) : descendants;
+                });
     }
 
+    /**
+     * Returns the node of the given path as is when the prefix ends with a {@code /}, only filtering the qualified names
+     * otherwise.
+     */
     @Override
     public Selection subSelection(String prefix) {
-        Set<String> subFields = fields
-                .stream()
-                .filter(field -> field.startsWith(prefix))
-                .map(field -> field.substring(prefix.length()))
-                .collect(toSet());
-        return new DefaultSelection(subFields);
+        if (!prefix.endsWith("/")) {
+            return new DefaultSelection(stream()
+                    .filter(field -> field.startsWith(prefix))
+                    .map(field -> field.substring(prefix.length()))
+                    .collect(toSet()));
+        }
+        DefaultSelection node = find(prefix.substring(0, prefix.length() - 1));
+        return node == null ? EMPTY : node;
+    }
+
+    /**
+     * Selections built from qualified names don't know the types of their fields, which are then all kept. The fields
+     * kept for the given type are then selected for all the types of the restricted selection, and lose theirs.
+     */
+    @Override
+    public Selection forType(String typeName) {
+        Map<String, DefaultSelection> children = getChildren();
+        if (children.values().stream().allMatch(child -> child.objectTypeNames.isEmpty())) {
+            return this;
+        }
+        Map<String, DefaultSelection> typeChildren = new LinkedHashMap<>();
+        children.forEach((name, child) -> {
+            if (child.objectTypeNames.isEmpty()) {
+                typeChildren.put(name, child);
+            } else if (child.objectTypeNames.contains(typeName)) {
+                typeChildren.put(
+                        name,
+                        new DefaultSelection(child.selected, child.getChildren(), child.argumentsByAlias, emptyList())
+                );
+            }
+        });
+        return new DefaultSelection(selected, unmodifiableMap(typeChildren), argumentsByAlias, objectTypeNames);
+    }
+
+    /**
+     * Keeps the fields under one of the given prefixes only, leaving them as they are (as opposed to
+     * {@link #subSelection(String)}): prefixes match whole path segments, so that {@code author} doesn't keep
+     * {@code authorName}.
+     */
+    DefaultSelection retain(List<String> prefixes) {
+        return new DefaultSelection(false, retain(this, "", prefixes), emptyMap(), emptyList());
+    }
+
+    private static Map<String, DefaultSelection> retain(DefaultSelection node, String path, List<String> prefixes) {
+        Map<String, DefaultSelection> children = new LinkedHashMap<>();
+        node.getChildren().forEach((name, child) -> {
+            String childPath = path + name;
+            boolean retained = child.selected && prefixes.stream().anyMatch(prefix -> isUnder(childPath, prefix));
+            Map<String, DefaultSelection> retainedChildren = retain(child, childPath + "/", prefixes);
+            if (retained || !retainedChildren.isEmpty()) {
+                children.put(name, new DefaultSelection(
+                        retained,
+                        retainedChildren,
+                        retained ? child.argumentsByAlias : emptyMap(),
+                        child.objectTypeNames
+                ));
+            }
+        });
+        return unmodifiableMap(children);
+    }
+
+    private static boolean isUnder(String path, String prefix) {
+        return path.startsWith(prefix)
+                && (path.length() == prefix.length() || prefix.endsWith("/") || path.charAt(prefix.length()) == '/');
+    }
+
+    /**
+     * Merges the given selections, the arguments of the fields they share included: they must not
+     * {@link #conflict(Selection, Selection) conflict}.
+     */
+    static DefaultSelection union(Collection<? extends Selection> selections) {
+        return new DefaultSelection(
+                false,
+                unite(selections.stream().map(DefaultSelection.class::cast).collect(toList())),
+                emptyMap(),
+                emptyList()
+        );
+    }
+
+    private static Map<String, DefaultSelection> unite(List<DefaultSelection> nodes) {
+        Map<String, List<DefaultSelection>> childrenByName = new LinkedHashMap<>();
+        for (DefaultSelection node : nodes) {
+            node.getChildren().forEach((name, child) -> childrenByName
+                    .computeIfAbsent(name, childName -> new ArrayList<>(nodes.size()))
+                    .add(child));
+        }
+        Map<String, DefaultSelection> children = new LinkedHashMap<>();
+        childrenByName.forEach((name, sameNameChildren) -> {
+            boolean selected = false;
+            Map<String, Arguments> argumentsByAlias = new LinkedHashMap<>();
+            List<List<String>> objectTypeNames = new ArrayList<>(sameNameChildren.size());
+            for (DefaultSelection child : sameNameChildren) {
+                selected |= child.selected;
+                argumentsByAlias.putAll(child.getArgumentsByAlias(name));
+                objectTypeNames.add(child.objectTypeNames);
+            }
+            children.put(name, new DefaultSelection(
+                    selected,
+                    unite(sameNameChildren),
+                    normalize(name, argumentsByAlias),
+                    uniteObjectTypeNames(objectTypeNames)
+            ));
+        });
+        return unmodifiableMap(children);
+    }
+
+    /**
+     * Whether merging the given selections would lose arguments, both selecting the same alias of a field with different
+     * ones.
+     */
+    static boolean conflict(Selection selection, Selection otherSelection) {
+        return conflict(((DefaultSelection) selection).getChildren(), ((DefaultSelection) otherSelection).getChildren());
+    }
+
+    private static boolean conflict(Map<String, DefaultSelection> children, Map<String, DefaultSelection> otherChildren) {
+        for (Map.Entry<String, DefaultSelection> child : children.entrySet()) {
+            DefaultSelection otherChild = otherChildren.get(child.getKey());
+            if (otherChild == null) {
+                continue;
+            }
+            Map<String, Arguments> otherArgumentsByAlias = otherChild.getArgumentsByAlias(child.getKey());
+            for (Map.Entry<String, Arguments> arguments : child.getValue().getArgumentsByAlias(child.getKey()).entrySet()) {
+                Arguments otherArguments = otherArgumentsByAlias.get(arguments.getKey());
+                if (otherArguments != null && !otherArguments.equals(arguments.getValue())) {
+                    return true;
+                }
+            }
+            if (conflict(child.getValue().getChildren(), otherChild.getChildren())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A field selected for all types being kept for all of them, it stays so once merged with others. The types are
+     * sorted so that they compare equal whatever order the fields were selected in.
+     */
+    private static List<String> uniteObjectTypeNames(List<List<String>> objectTypeNames) {
+        if (objectTypeNames.stream().anyMatch(List::isEmpty)) {
+            return emptyList();
+        }
+        if (objectTypeNames.size() == 1 && objectTypeNames.get(0).size() == 1) {
+            return objectTypeNames.get(0);
+        }
+        Set<String> unitedObjectTypeNames = new TreeSet<>();
+        objectTypeNames.forEach(unitedObjectTypeNames::addAll);
+        return unmodifiableList(new ArrayList<>(unitedObjectTypeNames));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof DefaultSelection) || hashCode() != o.hashCode()) {
+            return false;
+        }
+        Map<String, DefaultSelection> otherChildren = ((DefaultSelection) o).getChildren();
+        Map<String, DefaultSelection> children = getChildren();
+        if (children.size() != otherChildren.size()) {
+            return false;
+        }
+        for (Map.Entry<String, DefaultSelection> child : children.entrySet()) {
+            DefaultSelection otherChild = otherChildren.get(child.getKey());
+            if (otherChild == null
+                    || otherChild.selected != child.getValue().selected
+                    || !otherChild.argumentsByAlias.equals(child.getValue().argumentsByAlias)
+                    || !otherChild.objectTypeNames.equals(child.getValue().objectTypeNames)
+                    || !otherChild.equals(child.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            for (Map.Entry<String, DefaultSelection> child : getChildren().entrySet()) {
+                h += (child.getKey().hashCode() * 31 + (child.getValue().selected ? 1 : 0))
+                        ^ child.getValue().argumentsByAlias.hashCode()
+                        ^ child.getValue().objectTypeNames.hashCode() * 17
+                        ^ child.getValue().hashCode();
+            }
+            hash = h;
+        }
+        return h;
     }
 
     @Override
     public String toString() {
-        return fields.toString();
+        return stream().collect(toList()).toString();
     }
 
-    private static Set<String> extractFields(DataFetchingEnvironment environment, int depth) {
-        List<String> globs = buildGlobs(depth);
-        String firstGlob = globs.remove(0);
-        return environment
-                .getSelectionSet()
-                .getFields(firstGlob, globs.toArray(new String[0]))
-                .stream()
-                .map(SelectedField::getQualifiedName)
-                .collect(toSet());
+    private static Map<String, DefaultSelection> build(Set<String> fields) {
+        Builder root = new Builder();
+        fields.forEach(root::add);
+        return root.buildChildren();
+    }
+
+    /**
+     * Groups the immediate fields of the given selection sets by name, fields selected several times (e.g. under
+     * different aliases or for different types) making one node of all their sub-selections.
+     */
+    private static Map<String, DefaultSelection> expand(@Nullable List<DataFetchingFieldSelectionSet> selectionSets, int depth) {
+        if (selectionSets == null || depth < 1) {
+            return emptyMap();
+        }
+        Map<String, List<SelectedField>> fieldsByName = new LinkedHashMap<>();
+        for (DataFetchingFieldSelectionSet selectionSet : selectionSets) {
+            for (SelectedField field : selectionSet.getImmediateFields()) {
+                fieldsByName.computeIfAbsent(getName(field), name -> new ArrayList<>(1)).add(field);
+            }
+        }
+        Map<String, DefaultSelection> children = new LinkedHashMap<>(fieldsByName.size() * 2);
+        fieldsByName.forEach((name, fields) -> children.put(
+                name,
+                new DefaultSelection(
+                        true,
+                        fields.stream().map(SelectedField::getSelectionSet).collect(toList()),
+                        depth == Depth.UNBOUNDED ? depth : depth - 1,
+                        getArgumentsByAlias(name, fields),
+                        getObjectTypeNames(fields)
+                )
+        ));
+        return unmodifiableMap(children);
+    }
+
+    /**
+     * Only the types of the fields selected for some of them (through fragments) are kept.
+     */
+    private static List<String> getObjectTypeNames(List<SelectedField> fields) {
+        return fields.stream().allMatch(SelectedField::isConditional)
+                ? uniteObjectTypeNames(fields.stream().map(SelectedField::getObjectTypeNames).collect(toList()))
+                : emptyList();
+    }
+
+    private static Map<String, Arguments> getArgumentsByAlias(String name, List<SelectedField> fields) {
+        Map<String, Arguments> argumentsByAlias = new LinkedHashMap<>();
+        for (SelectedField field : fields) {
+            argumentsByAlias.put(
+                    field.getResultKey(),
+                    field.getArguments().isEmpty() ? DefaultArguments.EMPTY : new DefaultArguments(field.getArguments())
+            );
+        }
+        return normalize(name, argumentsByAlias);
+    }
+
+    private static Map<String, Arguments> normalize(String name, Map<String, Arguments> argumentsByAlias) {
+        boolean plain = argumentsByAlias.isEmpty()
+                || argumentsByAlias.size() == 1 && DefaultArguments.EMPTY.equals(argumentsByAlias.get(name));
+        return plain ? emptyMap() : unmodifiableMap(argumentsByAlias);
     }
 
-    private static List<String> buildGlobs(int depth) {
-        return IntStream
-                .rangeClosed(1, depth)
-                .mapToObj(i -> join("/", nCopies(i, "*")))
-                .collect(toList());
+    /**
+     * Uses the name held by the schema, so that the same strings are shared by all the executions.
+     */
+    private static String getName(SelectedField field) {
+        return field.getFieldDefinitions().isEmpty() ? field.getName() : field.getFieldDefinitions().get(0).getName();
     }
 
 }
@@ -10,6 +10,11 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 @Target(PARAMETER)
 public @interface Depth {
 
+    /**
+     * Makes the whole sub-tree of the field part of the selection, its nodes being expanded as they are looked into.
+     */
+    int UNBOUNDED = Integer.MAX_VALUE;
+
     int value() default 1;
 
 }
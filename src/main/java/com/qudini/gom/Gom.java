@@ -1,16 +1,24 @@
 package com.qudini.gom;
 
 import graphql.schema.idl.RuntimeWiring;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import org.dataloader.DataLoaderOptions;
 import org.dataloader.DataLoaderRegistry;
 
 import javax.annotation.Nonnull;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 
 import static com.qudini.gom.Converters.newConverters;
 import static graphql.schema.idl.TypeRuntimeWiring.newTypeWiring;
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableMap;
 import static java.util.stream.Collectors.groupingBy;
 import static lombok.AccessLevel.PRIVATE;
 
@@ -21,10 +29,20 @@ public final class Gom {
 
         private Collection<Object> resolvers;
         private Converters converters;
+        private ArgumentsNormalizer argumentsNormalizer;
+        private Executor executor;
+        private boolean blocking;
+        private BiConsumer<String, DataLoaderOptions> dataLoaderOptionsCustomizer;
+        private int maxCachedOperationPlans;
 
         private Builder() {
             this.resolvers = new HashSet<>();
             this.converters = newConverters().build();
+            this.argumentsNormalizer = ArgumentsNormalizer.none();
+            this.blocking = false;
+            this.dataLoaderOptionsCustomizer = (field, options) -> {
+            };
+            this.maxCachedOperationPlans = 0;
         }
 
         @Nonnull
@@ -39,17 +57,112 @@ public final class Gom {
             return this;
         }
 
+        /**
+         * Normalizes the arguments of the {@link Batched} resolvers before they discriminate their sources.
+         */
+        @Nonnull
+        public Builder argumentsNormalizer(ArgumentsNormalizer argumentsNormalizer) {
+            this.argumentsNormalizer = argumentsNormalizer;
+            return this;
+        }
+
+        /**
+         * The executor running the {@link Blocking} resolvers, a virtual thread per task on JDK 21+ by default.
+         */
+        @Nonnull
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Whether the resolvers not annotated with {@link Blocking} are blocking, {@code false} by default.
+         */
+        @Nonnull
+        public Builder blocking(boolean blocking) {
+            this.blocking = blocking;
+            return this;
+        }
+
+        /**
+         * Customizes the options of the data loader of each {@link Batched} resolver, given its {@code Type.field}, once
+         * set from its annotation. It is called each time a data loader gets created, i.e. for each request.
+         */
+        @Nonnull
+        public Builder dataLoaderOptions(BiConsumer<String, DataLoaderOptions> dataLoaderOptionsCustomizer) {
+            this.dataLoaderOptionsCustomizer = dataLoaderOptionsCustomizer;
+            return this;
+        }
+
+        /**
+         * The maximum number of fields whose arguments and selection are kept across executions, for the operations
+         * whose document is reused (e.g. persisted queries through a
+         * {@link graphql.execution.preparsed.PreparsedDocumentProvider}), parsing a document anew making a new operation
+         * of it: disabled by default.
+         */
+        @Nonnull
+        public Builder maxCachedOperationPlans(int maxCachedOperationPlans) {
+            this.maxCachedOperationPlans = maxCachedOperationPlans;
+            return this;
+        }
+
         @Nonnull
         public Gom build() {
-            ResolverInspection inspection = ResolverInspection.inspect(resolvers, converters);
-            return new Gom(inspection.getFieldWirings(), inspection.getDataLoaderRegistrars());
+            ResolverInspection inspection = ResolverInspection.inspect(
+                    resolvers,
+                    converters,
+                    argumentsNormalizer,
+                    executor == null ? BlockingExecutors.newDefaultExecutor() : executor,
+                    blocking,
+                    dataLoaderOptionsCustomizer,
+                    maxCachedOperationPlans
+            );
+            return new Gom(
+                    inspection.getFieldWirings(),
+                    inspection.getDataLoaderRegistrars(),
+                    LazyDataLoaderRegistry.indexByKey(inspection.getDataLoaderRegistrars()),
+                    unmodifiableMap(inspection.getMetrics()),
+                    inspection.getCaches()
+            );
         }
 
     }
 
     private final Collection<FieldWiring> fieldWirings;
 
-    private final Collection<DataLoaderRegistrar> dataLoaderRegistrars;
+    private final List<DataLoaderRegistrar> dataLoaderRegistrars;
+
+    private final Map<String, DataLoaderRegistrar> dataLoaderRegistrarsByKey;
+
+    /**
+     * The metrics of each resolver method, keyed by {@code Type.field}.
+     */
+    @Getter
+    private final Map<String, ResolverMetrics> metrics;
+
+    private final Map<String, ResolverCache> caches;
+
+    private ResolverCache getCache(String field) {
+        ResolverCache cache = caches.get(field);
+        if (cache == null) {
+            throw new IllegalStateException(format("No cached resolver found for %s", field));
+        }
+        return cache;
+    }
+
+    /**
+     * Evicts what the {@link Cached} resolver of the given {@code Type.field} cached for the given source.
+     */
+    public void invalidate(String field, Object source) {
+        getCache(field).invalidate(source);
+    }
+
+    /**
+     * Evicts everything the {@link Cached} resolver of the given {@code Type.field} cached.
+     */
+    public void invalidate(String field) {
+        getCache(field).invalidateAll();
+    }
 
     public void decorateRuntimeWiringBuilder(RuntimeWiring.Builder builder) {
         fieldWirings
@@ -68,10 +181,23 @@ public final class Gom {
                 .forEach(builder::type);
     }
 
+    /**
+     * Registers the data loaders of all the {@link Batched} resolvers, whether the request uses them or not: prefer
+     * {@link #newDataLoaderRegistry()}, which only creates those it does.
+     */
     public void decorateDataLoaderRegistry(DataLoaderRegistry registry) {
         dataLoaderRegistrars.forEach(registrar -> registrar.register(registry));
     }
 
+    /**
+     * Creates a registry for one request, the data loaders of the {@link Batched} resolvers being registered the first
+     * time they are looked up.
+     */
+    @Nonnull
+    public DataLoaderRegistry newDataLoaderRegistry() {
+        return new LazyDataLoaderRegistry(dataLoaderRegistrars, dataLoaderRegistrarsByKey);
+    }
+
     @Nonnull
     public static Builder newGom() {
         return new Builder();
@@ -0,0 +1,74 @@
+package com.qudini.gom;
+
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Which part of the arguments and selection of a batched resolver splits its sources into separate calls, as declared
+ * on {@link Batched}.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+final class Grouping {
+
+    @Nullable
+    private final Set<String> argumentNames;
+
+    @Nullable
+    private final List<String> selectionPrefixes;
+
+    boolean isPartial() {
+        return argumentNames != null || selectionPrefixes != null;
+    }
+
+    /**
+     * Whether the selections of grouped sources can differ, in which case the resolver receives their union.
+     */
+    boolean isSelectionMerged() {
+        return selectionPrefixes != null;
+    }
+
+    Arguments getArguments(Arguments arguments) {
+        return argumentNames == null ? arguments : ((DefaultArguments) arguments).retain(argumentNames);
+    }
+
+    Selection getSelection(Selection selection) {
+        return selectionPrefixes == null ? selection : ((DefaultSelection) selection).retain(selectionPrefixes);
+    }
+
+    DataLoaderKey.Discriminator getDiscriminator(DataLoaderKey.Discriminator discriminator) {
+        return isPartial()
+                ? new DataLoaderKey.Discriminator(
+                        getArguments(discriminator.getArguments()),
+                        getSelection(discriminator.getSelection())
+                )
+                : discriminator;
+    }
+
+    private static boolean isAll(String[] values) {
+        return values.length == 1 && Batched.ALL.equals(values[0]);
+    }
+
+    static Grouping of(Batched batched) {
+        List<String> selectionPrefixes;
+        if (batched.mergeSelections()) {
+            selectionPrefixes = emptyList();
+        } else if (isAll(batched.groupingSelection())) {
+            selectionPrefixes = null;
+        } else {
+            selectionPrefixes = asList(batched.groupingSelection());
+        }
+        return new Grouping(
+                isAll(batched.groupingArguments()) ? null : new HashSet<>(asList(batched.groupingArguments())),
+                selectionPrefixes
+        );
+    }
+
+}
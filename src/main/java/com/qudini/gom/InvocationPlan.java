@@ -0,0 +1,386 @@
+package com.qudini.gom;
+
+import graphql.GraphQLContext;
+import graphql.execution.ExecutionId;
+import graphql.execution.MergedField;
+import graphql.schema.DataFetcher;
+import graphql.schema.DataFetchingEnvironment;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static lombok.AccessLevel.PACKAGE;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * How a resolver method gets invoked, worked out once from its signature so that invoking it doesn't need to look at
+ * its parameters anymore.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+final class InvocationPlan {
+
+    @FunctionalInterface
+    interface Invocation {
+
+        Object invoke(@Nullable Object source, Arguments arguments, Selection selection);
+
+    }
+
+    @RequiredArgsConstructor
+    private enum Layout {
+
+        NONE(false, false) {
+            @Override
+            Invocation bind(MethodInvoker methodInvoker) {
+                return (source, arguments, selection) -> methodInvoker.invoke();
+            }
+        },
+
+        SOURCE(false, false) {
+            @Override
+            Invocation bind(MethodInvoker methodInvoker) {
+                return (source, arguments, selection) -> methodInvoker.invoke(source);
+            }
+        },
+
+        ARGUMENTS(true, false) {
+            @Override
+            Invocation bind(MethodInvoker methodInvoker) {
+                return (source, arguments, selection) -> methodInvoker.invoke(arguments);
+            }
+        },
+
+        SELECTION(false, true) {
+            @Override
+            Invocation bind(MethodInvoker methodInvoker) {
+                return (source, arguments, selection) -> methodInvoker.invoke(selection);
+            }
+        },
+
+        SOURCE_ARGUMENTS(true, false) {
+            @Override
+            Invocation bind(MethodInvoker methodInvoker) {
+                return (source, arguments, selection) -> methodInvoker.invoke(source, arguments);
+            }
+        },
+
+        SOURCE_SELECTION(false, true) {
+            @Override
+            Invocation bind(MethodInvoker methodInvoker) {
+                return (source, arguments, selection) -> methodInvoker.invoke(source, selection);
+            }
+        },
+
+        ARGUMENTS_SELECTION(true, true) {
+            @Override
+            Invocation bind(MethodInvoker methodInvoker) {
+                return (source, arguments, selection) -> methodInvoker.invoke(arguments, selection);
+            }
+        },
+
+        SOURCE_ARGUMENTS_SELECTION(true, true) {
+            @Override
+            Invocation bind(MethodInvoker methodInvoker) {
+                return (source, arguments, selection) -> methodInvoker.invoke(source, arguments, selection);
+            }
+        };
+
+        private final boolean arguments;
+
+        private final boolean selection;
+
+        abstract Invocation bind(MethodInvoker methodInvoker);
+
+        private static Layout withSource(MethodInvoker methodInvoker) {
+            switch (methodInvoker.getParameterCount()) {
+                case 0:
+                    return NONE;
+                case 1:
+                    return SOURCE;
+                case 2:
+                    return methodInvoker.hasParameterType(Arguments.class) ? SOURCE_ARGUMENTS : SOURCE_SELECTION;
+                default:
+                    return SOURCE_ARGUMENTS_SELECTION;
+            }
+        }
+
+        private static Layout withoutSource(MethodInvoker methodInvoker) {
+            switch (methodInvoker.getParameterCount()) {
+                case 0:
+                    return NONE;
+                case 1:
+                    return methodInvoker.hasParameterType(Arguments.class) ? ARGUMENTS : SELECTION;
+                case 2:
+                    return ARGUMENTS_SELECTION;
+                default:
+                    return SOURCE_ARGUMENTS_SELECTION;
+            }
+        }
+
+    }
+
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static final class Binding {
+
+        private final Layout layout;
+
+        private final Invocation invocation;
+
+        private static Binding of(Layout layout, MethodInvoker methodInvoker) {
+            return new Binding(layout, layout.bind(methodInvoker));
+        }
+
+    }
+
+    @RequiredArgsConstructor(access = PRIVATE)
+    @EqualsAndHashCode
+    private static final class MemoizationKey {
+
+        @Nullable
+        private final Object source;
+
+        private final Arguments arguments;
+
+        private final Selection selection;
+
+    }
+
+    /**
+     * What a plan keeps in the {@link GraphQLContext} for the duration of an execution, in case the context is reused by
+     * the next ones.
+     */
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static final class ExecutionMap<K, V> {
+
+        @Nullable
+        private final ExecutionId executionId;
+
+        private final Map<K, V> values = new ConcurrentHashMap<>();
+
+    }
+
+    private static final DataLoaderKey.Discriminator EMPTY_DISCRIMINATOR = new DataLoaderKey.Discriminator(
+            DefaultArguments.EMPTY,
+            DefaultSelection.EMPTY
+    );
+
+    private final Object memoizedResultsKey = new Object();
+
+    private final Binding withSource;
+
+    private final Binding withoutSource;
+
+    private final int selectionDepth;
+
+    /**
+     * Whether the batched resolver takes its sources grouped by arguments, as a {@code Map<Arguments, Set<Source>>}.
+     */
+    @Getter(PACKAGE)
+    private final boolean argumentsGrouped;
+
+    /**
+     * Whether the batched resolver takes its sources along with their own arguments, as a {@code Map<Source, Arguments>}.
+     */
+    @Getter(PACKAGE)
+    private final boolean argumentsBySource;
+
+    /**
+     * Where the resolver gets invoked if it is {@link Blocking}.
+     */
+    @Nullable
+    private final Executor executor;
+
+    @Nullable
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * Whether the results are memoized in the {@link GraphQLContext} for the duration of an execution.
+     */
+    private final boolean memoized;
+
+    @Nullable
+    private final OperationPlanCache planCache;
+
+    private final ResolverMetrics metrics;
+
+    boolean isBlocking() {
+        return executor != null;
+    }
+
+    private Selection getSelection(Binding binding, DataFetchingEnvironment environment) {
+        return binding.layout.selection ? new DefaultSelection(environment, selectionDepth) : DefaultSelection.EMPTY;
+    }
+
+    /**
+     * Batched resolvers always receive their sources, so only the arguments and selection they declare discriminate them.
+     */
+    DataLoaderKey.Discriminator discriminate(DataFetchingEnvironment environment, ArgumentsNormalizer normalizer) {
+        return discriminate(withSource, environment, normalizer);
+    }
+
+    /**
+     * As the arguments and selection are the same for all the sources of a field during an execution, its siblings
+     * share the same discriminator, interned by field nodes, which the plan cache keeps across executions. It is created
+     * outside of the map's lock, the first one stored being shared if several were created concurrently.
+     */
+    private DataLoaderKey.Discriminator discriminate(
+            Binding binding,
+            DataFetchingEnvironment environment,
+            ArgumentsNormalizer normalizer
+    ) {
+        boolean argumentsNeeded = binding.layout.arguments || binding == withSource && (argumentsGrouped || argumentsBySource);
+        if (!argumentsNeeded && !binding.layout.selection) {
+            return EMPTY_DISCRIMINATOR;
+        }
+        if (environment.getMergedField() == null) {
+            return createDiscriminator(binding, argumentsNeeded, environment, normalizer);
+        }
+        Map<MergedField, DataLoaderKey.Discriminator> discriminators = getExecutionMap(environment, binding);
+        DataLoaderKey.Discriminator discriminator = discriminators.get(environment.getMergedField());
+        if (discriminator != null) {
+            return discriminator;
+        }
+        discriminator = planCache == null
+                ? createDiscriminator(binding, argumentsNeeded, environment, normalizer)
+                : planCache.get(
+                        binding,
+                        environment,
+                        () -> createDiscriminator(binding, argumentsNeeded, environment, normalizer),
+                        metrics
+                );
+        DataLoaderKey.Discriminator currentDiscriminator = discriminators.putIfAbsent(environment.getMergedField(), discriminator);
+        return currentDiscriminator == null ? discriminator : currentDiscriminator;
+    }
+
+    private DataLoaderKey.Discriminator createDiscriminator(
+            Binding binding,
+            boolean argumentsNeeded,
+            DataFetchingEnvironment environment,
+            ArgumentsNormalizer normalizer
+    ) {
+        Selection selection = getSelection(binding, environment);
+        if (!argumentsNeeded) {
+            return new DataLoaderKey.Discriminator(DefaultArguments.EMPTY, selection);
+        }
+        Map<String, Object> arguments = environment.getArguments();
+        Map<String, Object> normalizedArguments = normalizer.normalize(environment.getFieldDefinition(), arguments);
+        return normalizedArguments == arguments
+                ? new DataLoaderKey.Discriminator(new DefaultArguments(arguments), selection)
+                : new DataLoaderKey.Discriminator(
+                        new DefaultArguments(normalizedArguments),
+                        selection,
+                        new DefaultArguments(arguments)
+                );
+    }
+
+    /**
+     * Invokes the resolver and converts what it returned, on the executor if it is blocking, and within its concurrency
+     * limit if any.
+     */
+    CompletableFuture<Object> invoke(
+            @Nullable Object source,
+            Arguments arguments,
+            Selection selection,
+            Converters converters,
+            GraphQLContext context
+    ) {
+        return limiter == null
+                ? invokeUnlimited(source, arguments, selection, converters, context)
+                : limiter.submit(() -> invokeUnlimited(source, arguments, selection, converters, context));
+    }
+
+    private CompletableFuture<Object> invokeUnlimited(
+            @Nullable Object source,
+            Arguments arguments,
+            Selection selection,
+            Converters converters,
+            GraphQLContext context
+    ) {
+        Invocation invocation = source == null ? withoutSource.invocation : withSource.invocation;
+        if (executor == null) {
+            return converters.convert(invocation.invoke(source, arguments, selection), context);
+        } else {
+            return supplyAsync(() -> invocation.invoke(source, arguments, selection), executor)
+                    .thenCompose(returnedValue -> converters.convert(returnedValue, context));
+        }
+    }
+
+    DataFetcher<CompletableFuture<Object>> toDataFetcher(Converters converters) {
+        return environment -> {
+            Object source = environment.getSource();
+            DataLoaderKey.Discriminator discriminator = discriminate(
+                    source == null ? withoutSource : withSource,
+                    environment,
+                    ArgumentsNormalizer.none()
+            );
+            Arguments arguments = discriminator.getArguments();
+            Selection selection = discriminator.getSelection();
+            GraphQLContext context = environment.getGraphQlContext();
+            if (memoized) {
+                return this
+                        .<MemoizationKey, CompletableFuture<Object>>getExecutionMap(environment, memoizedResultsKey)
+                        .computeIfAbsent(
+                                new MemoizationKey(source, arguments, selection),
+                                key -> invoke(source, arguments, selection, converters, context)
+                        );
+            } else {
+                return invoke(source, arguments, selection, converters, context);
+            }
+        };
+    }
+
+    private <K, V> Map<K, V> getExecutionMap(DataFetchingEnvironment environment, Object key) {
+        GraphQLContext context = environment.getGraphQlContext();
+        ExecutionId executionId = environment.getExecutionId();
+        ExecutionMap<K, V> map = context.get(key);
+        if (map == null || !Objects.equals(map.executionId, executionId)) {
+            synchronized (context) {
+                map = context.get(key);
+                if (map == null || !Objects.equals(map.executionId, executionId)) {
+                    map = new ExecutionMap<>(executionId);
+                    context.put(key, map);
+                }
+            }
+        }
+        return map.values;
+    }
+
+    /**
+     * Only batched resolvers take their sources as a map, other resolvers receiving a map as source being left as is.
+     */
+    static InvocationPlan of(
+            MethodInvoker methodInvoker,
+            boolean batched,
+            @Nullable Executor executor,
+            @Nullable ConcurrencyLimiter limiter,
+            boolean memoized,
+            @Nullable OperationPlanCache planCache,
+            ResolverMetrics metrics
+    ) {
+        boolean sourcesMap = batched && methodInvoker.hasFirstParameterType(Map.class);
+        return new InvocationPlan(
+                Binding.of(Layout.withSource(methodInvoker), methodInvoker),
+                Binding.of(Layout.withoutSource(methodInvoker), methodInvoker),
+                methodInvoker
+                        .getFirstParameterAnnotation(Selection.class, Depth.class)
+                        .map(Depth::value)
+                        .orElse(1),
+                sourcesMap && !methodInvoker.hasFirstParameterTypeArgument(1, Arguments.class),
+                sourcesMap && methodInvoker.hasFirstParameterTypeArgument(1, Arguments.class),
+                executor,
+                limiter,
+                memoized,
+                planCache,
+                metrics
+        );
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.qudini.gom;
+
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.lang.invoke.MethodType.methodType;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Reads the property given to {@link Batched#key()} from the sources, so that they are hashed and compared by it instead
+ * of by themselves. The key is read once per source, and as it is compared within maps keyed by objects (the results
+ * of the resolver included), a primitive key gets boxed then.
+ */
+@RequiredArgsConstructor(access = PRIVATE)
+final class KeyExtractor {
+
+    private final String property;
+
+    private final ClassValue<MethodHandle> getters = new ClassValue<MethodHandle>() {
+
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            return findGetter(type);
+        }
+
+    };
+
+    @SneakyThrows
+    Object extract(Object source) {
+        MethodHandle getter = getters.get(source.getClass());
+        Object key = (Object) getter.invokeExact(source);
+        if (key == null) {
+            throw new IllegalStateException(format("The %s key of %s is null", property, source));
+        }
+        return key;
+    }
+
+    @SneakyThrows(IllegalAccessException.class)
+    private MethodHandle findGetter(Class<?> type) {
+        String capitalizedProperty = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        Method getter = Stream
+                .of("get" + capitalizedProperty, "is" + capitalizedProperty, property)
+                .flatMap(name -> Stream.of(type.getMethods()).filter(method -> method.getName().equals(name)))
+                .filter(method -> method.getParameterCount() == 0 && !Modifier.isStatic(method.getModifiers()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException(format("No %s key getter found in %s", property, type)));
+        getter.setAccessible(true);
+        return MethodHandles.lookup().unreflect(getter).asType(methodType(Object.class, Object.class));
+    }
+
+    static KeyExtractor of(String property) {
+        return new KeyExtractor(property);
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.qudini.gom;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the latency of the last calls of a resolver to estimate one of its percentiles.
+ */
+final class LatencyTracker {
+
+    private static final int SAMPLE_COUNT = 256;
+
+    private static final int MIN_SAMPLE_COUNT = 16;
+
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    private final double percentile;
+
+    private final long[] samples = new long[SAMPLE_COUNT];
+
+    private long count;
+
+    private volatile long estimate = -1;
+
+    LatencyTracker(double percentile) {
+        this.percentile = percentile;
+    }
+
+    synchronized void record(long latencyNanos) {
+        samples[(int) (count % SAMPLE_COUNT)] = latencyNanos;
+        count++;
+        if (count >= MIN_SAMPLE_COUNT && count % RECOMPUTE_INTERVAL == 0) {
+            long[] sortedSamples = Arrays.copyOf(samples, (int) Math.min(count, SAMPLE_COUNT));
+            Arrays.sort(sortedSamples);
+            int index = (int) Math.ceil(percentile / 100 * sortedSamples.length) - 1;
+            estimate = sortedSamples[Math.max(0, Math.min(sortedSamples.length - 1, index))];
+        }
+    }
+
+    /**
+     * The estimated percentile in nanoseconds, or {@code -1} until enough calls have been recorded.
+     */
+    long getEstimate() {
+        return estimate;
+    }
+
+}
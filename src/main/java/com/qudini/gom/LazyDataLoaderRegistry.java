@@ -0,0 +1,62 @@
+package com.qudini.gom;
+
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * A registry only creating the data loaders of a {@link Gom} the first time they are looked up, so that a request
+ * doesn't pay for the {@link Batched} resolvers it doesn't use. Its resolvers find their data loader by index rather
+ * than by key.
+ */
+final class LazyDataLoaderRegistry extends DataLoaderRegistry {
+
+    private final List<DataLoaderRegistrar> registrars;
+
+    private final Map<String, DataLoaderRegistrar> registrarsByKey;
+
+    private final AtomicReferenceArray<DataLoader<DataLoaderKey, Object>> dataLoadersByIndex;
+
+    LazyDataLoaderRegistry(List<DataLoaderRegistrar> registrars, Map<String, DataLoaderRegistrar> registrarsByKey) {
+        this.registrars = registrars;
+        this.registrarsByKey = registrarsByKey;
+        this.dataLoadersByIndex = new AtomicReferenceArray<>(registrars.size());
+    }
+
+    /**
+     * Creates the data loader of the given key if it's one of a registrar, so that it is then found as if it had been
+     * registered upfront.
+     */
+    @Override
+    public <K, V> DataLoader<K, V> getDataLoader(String key) {
+        DataLoaderRegistrar registrar = registrarsByKey.get(key);
+        if (registrar != null) {
+            getDataLoader(registrar);
+        }
+        return super.getDataLoader(key);
+    }
+
+    DataLoader<DataLoaderKey, Object> getDataLoader(DataLoaderRegistrar registrar) {
+        int index = registrar.getIndex();
+        if (index >= registrars.size() || registrars.get(index) != registrar) {
+            return computeIfAbsent(registrar.getDataLoaderKey(), key -> registrar.getDataLoaderSupplier().get());
+        }
+        DataLoader<DataLoaderKey, Object> dataLoader = dataLoadersByIndex.get(index);
+        if (dataLoader == null) {
+            dataLoader = computeIfAbsent(registrar.getDataLoaderKey(), key -> registrar.getDataLoaderSupplier().get());
+            dataLoadersByIndex.lazySet(index, dataLoader);
+        }
+        return dataLoader;
+    }
+
+    static Map<String, DataLoaderRegistrar> indexByKey(List<DataLoaderRegistrar> registrars) {
+        return registrars.stream().collect(toMap(DataLoaderRegistrar::getDataLoaderKey, identity()));
+    }
+
+}
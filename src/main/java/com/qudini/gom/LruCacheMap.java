@@ -0,0 +1,77 @@
+package com.qudini.gom;
+
+import org.dataloader.CacheMap;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static java.lang.String.format;
+
+/**
+ * A {@link CacheMap} keeping the given number of keys at most, evicting the least recently used ones first, to bound
+ * the memory a data loader uses per request.
+ */
+public final class LruCacheMap<K, V> implements CacheMap<K, V> {
+
+    private final Map<K, CompletableFuture<V>> futures;
+
+    public LruCacheMap(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalStateException(format("Invalid maximum size: %d", maxSize));
+        }
+        this.futures = new LinkedHashMap<K, CompletableFuture<V>>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CompletableFuture<V>> eldest) {
+                return size() > maxSize;
+            }
+
+        };
+    }
+
+    @Override
+    public synchronized boolean containsKey(K key) {
+        return futures.containsKey(key);
+    }
+
+    @Override
+    public synchronized CompletableFuture<V> get(K key) {
+        return futures.get(key);
+    }
+
+    @Override
+    @Nonnull
+    public synchronized Collection<CompletableFuture<V>> getAll() {
+        return new ArrayList<>(futures.values());
+    }
+
+    @Override
+    @Nonnull
+    public synchronized CacheMap<K, V> set(K key, CompletableFuture<V> value) {
+        futures.put(key, value);
+        return this;
+    }
+
+    @Override
+    @Nonnull
+    public synchronized CacheMap<K, V> delete(K key) {
+        futures.remove(key);
+        return this;
+    }
+
+    @Override
+    @Nonnull
+    public synchronized CacheMap<K, V> clear() {
+        futures.clear();
+        return this;
+    }
+
+    public synchronized int size() {
+        return futures.size();
+    }
+
+}
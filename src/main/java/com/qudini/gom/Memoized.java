@@ -0,0 +1,16 @@
+package com.qudini.gom;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Invokes a resolver only once per source, arguments and selection during an execution, the same result being reused
+ * each time they show up again in the response (e.g. the same source reached through several parents).
+ */
+@Retention(RUNTIME)
+@Target(METHOD)
+public @interface Memoized {
+}
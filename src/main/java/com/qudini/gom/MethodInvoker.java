@@ -1,45 +1,106 @@
 package com.qudini.gom;
 
+import com.qudini.gom.ResolverWiring.Invoker0;
+import com.qudini.gom.ResolverWiring.Invoker1;
+import com.qudini.gom.ResolverWiring.Invoker2;
+import com.qudini.gom.ResolverWiring.Invoker3;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 
+import javax.annotation.Nullable;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
+import static java.lang.invoke.MethodType.genericMethodType;
+import static java.lang.invoke.MethodType.methodType;
 import static java.util.Arrays.asList;
 import static lombok.AccessLevel.PRIVATE;
 
 @RequiredArgsConstructor(access = PRIVATE)
 final class MethodInvoker {
 
+    private static final Class<?>[] INVOKER_TYPES = {Invoker0.class, Invoker1.class, Invoker2.class, Invoker3.class};
+
     private final Method method;
 
     private final Object instance;
 
+    private final Object invoker;
+
     @SneakyThrows
-    Object invoke(Object... arguments) {
+    Object invoke() {
         try {
-            return method.invoke(instance, arguments);
-        } catch (IllegalAccessException | IllegalArgumentException | NullPointerException | ExceptionInInitializerError e) {
-            throw new IllegalStateException(
-                    format(
-                            "An error occurred while invoking %s on %s with arguments %s",
-                            method,
-                            instance,
-                            asList(arguments)
-                    ),
-                    e
-            );
-        } catch (InvocationTargetException e) {
-            throw e.getCause();
+            return ((Invoker0) invoker).invoke();
+        } catch (ClassCastException | NullPointerException e) {
+            throw failIfInvalid(e);
+        }
+    }
+
+    @SneakyThrows
+    Object invoke(@Nullable Object argument) {
+        try {
+            return ((Invoker1) invoker).invoke(argument);
+        } catch (ClassCastException | NullPointerException e) {
+            throw failIfInvalid(e, argument);
+        }
+    }
+
+    @SneakyThrows
+    Object invoke(@Nullable Object firstArgument, @Nullable Object secondArgument) {
+        try {
+            return ((Invoker2) invoker).invoke(firstArgument, secondArgument);
+        } catch (ClassCastException | NullPointerException e) {
+            throw failIfInvalid(e, firstArgument, secondArgument);
+        }
+    }
+
+    @SneakyThrows
+    Object invoke(@Nullable Object firstArgument, @Nullable Object secondArgument, @Nullable Object thirdArgument) {
+        try {
+            return ((Invoker3) invoker).invoke(firstArgument, secondArgument, thirdArgument);
+        } catch (ClassCastException | NullPointerException e) {
+            throw failIfInvalid(e, firstArgument, secondArgument, thirdArgument);
         }
     }
 
+    /**
+     * Only called once the invocation failed, so that checking the arguments against the parameters doesn't cost anything
+     * on the hot path: if they don't match, the failure is reported the same way {@link Method#invoke} used to, otherwise
+     * the exception comes from the resolver itself and is rethrown as is.
+     */
+    private RuntimeException failIfInvalid(RuntimeException e, Object... arguments) {
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        boolean invalid = arguments.length != parameterTypes.length;
+        for (int i = 0; !invalid && i < arguments.length; i++) {
+            invalid = arguments[i] == null
+                    ? parameterTypes[i].isPrimitive()
+                    : !methodType(parameterTypes[i]).wrap().returnType().isInstance(arguments[i]);
+        }
+        return invalid
+                ? new IllegalStateException(
+                        format(
+                                "An error occurred while invoking %s on %s with arguments %s",
+                                method,
+                                instance,
+                                asList(arguments)
+                        ),
+                        e
+                )
+                : e;
+    }
+
     int getParameterCount() {
         return method.getParameterCount();
     }
@@ -48,6 +109,24 @@ final class MethodInvoker {
         return asList(method.getParameterTypes()).contains(parameterType);
     }
 
+    boolean hasFirstParameterType(Class<?> parameterType) {
+        return method.getParameterCount() > 0 && method.getParameterTypes()[0] == parameterType;
+    }
+
+    /**
+     * Whether the first parameter is generic, with the given type as type argument at the given index (e.g. {@code 1} and
+     * {@code Arguments} for a {@code Map<Source, Arguments>}).
+     */
+    boolean hasFirstParameterTypeArgument(int index, Class<?> typeArgument) {
+        if (method.getParameterCount() == 0) {
+            return false;
+        }
+        Type parameterType = method.getGenericParameterTypes()[0];
+        return parameterType instanceof ParameterizedType
+                && ((ParameterizedType) parameterType).getActualTypeArguments().length > index
+                && ((ParameterizedType) parameterType).getActualTypeArguments()[index] == typeArgument;
+    }
+
     List<Annotation> getFirstParameterAnnotations(Class<?> parameterType) {
         int index = asList(method.getParameterTypes()).indexOf(parameterType);
         return index < 0
@@ -69,10 +148,92 @@ final class MethodInvoker {
     }
 
     static MethodInvoker of(Method method, Object instance) {
+        if (method.getParameterCount() >= INVOKER_TYPES.length) {
+            throw new IllegalStateException(format("Invalid resolver: %s", method));
+        }
         if (!method.isAccessible()) {
             method.setAccessible(true);
         }
-        return new MethodInvoker(method, instance);
+        return new MethodInvoker(method, instance, createInvoker(method, instance));
+    }
+
+    static MethodInvoker of(Method method, Object instance, Object invoker) {
+        if (!INVOKER_TYPES[method.getParameterCount()].isInstance(invoker)) {
+            throw new IllegalStateException(format("Invalid invoker for %s: %s", method, invoker));
+        }
+        return new MethodInvoker(method, instance, invoker);
+    }
+
+    @SneakyThrows(IllegalAccessException.class)
+    private static Object createInvoker(Method method, Object instance) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        MethodHandle handle = lookup.unreflect(method);
+        MethodHandle boundHandle = Modifier.isStatic(method.getModifiers()) ? handle : handle.bindTo(instance);
+        return spinInvoker(lookup, handle, method, instance)
+                .orElseGet(() -> adaptInvoker(boundHandle.asType(genericMethodType(method.getParameterCount()))));
+    }
+
+    /**
+     * Generates a class implementing the invoker interface that calls the resolver method directly, so that the JIT can
+     * inline it as if it were a handwritten call. It is only possible when the resolver's class and parameter types are
+     * visible from GOM's class loader, and for non-void methods.
+     */
+    private static Optional<Object> spinInvoker(MethodHandles.Lookup lookup, MethodHandle handle, Method method, Object instance) {
+        boolean spinnable = method.getReturnType() != void.class
+                && Stream
+                .concat(Stream.of(method.getDeclaringClass()), Stream.of(method.getParameterTypes()))
+                .allMatch(MethodInvoker::isVisible);
+        if (!spinnable) {
+            return Optional.empty();
+        }
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+        Class<?> invokerType = INVOKER_TYPES[method.getParameterCount()];
+        try {
+            CallSite callSite = LambdaMetafactory.metafactory(
+                    lookup,
+                    "invoke",
+                    isStatic ? methodType(invokerType) : methodType(invokerType, method.getDeclaringClass()),
+                    genericMethodType(method.getParameterCount()),
+                    handle,
+                    methodType(method.getReturnType(), method.getParameterTypes()).wrap()
+            );
+            return Optional.of(isStatic ? callSite.getTarget().invoke() : callSite.getTarget().invoke(instance));
+        } catch (Throwable e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Class<?> getBaseComponentType(Class<?> clazz) {
+        return clazz.isArray() ? getBaseComponentType(clazz.getComponentType()) : clazz;
+    }
+
+    private static boolean isVisible(Class<?> clazz) {
+        Class<?> baseClass = getBaseComponentType(clazz);
+        if (baseClass.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(baseClass.getName(), false, MethodInvoker.class.getClassLoader()) == baseClass;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Falls back on invoking the bound method handle exactly, which still avoids {@link Method#invoke}'s access checks
+     * and varargs array.
+     */
+    private static Object adaptInvoker(MethodHandle handle) {
+        switch (handle.type().parameterCount()) {
+            case 0:
+                return (Invoker0) () -> (Object) handle.invokeExact();
+            case 1:
+                return (Invoker1) argument -> (Object) handle.invokeExact(argument);
+            case 2:
+                return (Invoker2) (firstArgument, secondArgument) -> (Object) handle.invokeExact(firstArgument, secondArgument);
+            default:
+                return (Invoker3) (firstArgument, secondArgument, thirdArgument) -> (Object) handle.invokeExact(firstArgument, secondArgument, thirdArgument);
+        }
     }
 
 }
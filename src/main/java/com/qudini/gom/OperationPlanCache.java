@@ -0,0 +1,182 @@
+package com.qudini.gom;
+
+import graphql.execution.MergedField;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.Node;
+import graphql.language.VariableReference;
+import graphql.schema.DataFetchingEnvironment;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static java.lang.String.format;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * The arguments and selection of the fields of the operations already executed, shared by all the requests so that
+ * executing a known operation again (e.g. a persisted query) doesn't extract them anew.
+ * <p>
+ * Fields are recognised by their AST nodes, so only operations whose document is reused (e.g. through a
+ * {@link graphql.execution.preparsed.PreparsedDocumentProvider}) hit the cache. The values of the variables used by a
+ * field or its sub-selection are part of the key, the others are not.
+ * <p>
+ * Plans are computed outside of any lock, and the entries are split into stripes locked separately, so that concurrent
+ * executions don't contend on the cache: the least recently used entries are evicted per stripe.
+ */
+final class OperationPlanCache {
+
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * An access-ordered map per stripe, each keeping its share of the maximum number of entries.
+     */
+    private static final class StripedLruMap<K, V> {
+
+        private final List<Map<K, V>> stripes;
+
+        private StripedLruMap(int maxEntries) {
+            int stripeCount = Math.min(MAX_STRIPES, maxEntries);
+            this.stripes = new ArrayList<>(stripeCount);
+            for (int i = 0; i < stripeCount; i++) {
+                int maxStripeEntries = maxEntries / stripeCount + (i < maxEntries % stripeCount ? 1 : 0);
+                stripes.add(new LinkedHashMap<K, V>(16, 0.75f, true) {
+
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                        return size() > maxStripeEntries;
+                    }
+
+                });
+            }
+        }
+
+        private Map<K, V> getStripe(K key) {
+            int hash = key.hashCode();
+            return stripes.get(((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % stripes.size());
+        }
+
+        @Nullable
+        private V get(K key) {
+            Map<K, V> stripe = getStripe(key);
+            synchronized (stripe) {
+                return stripe.get(key);
+            }
+        }
+
+        /**
+         * Returns the value already there if any, so that concurrent executions planning the same field end up sharing
+         * the same value.
+         */
+        private V putIfAbsent(K key, V value) {
+            Map<K, V> stripe = getStripe(key);
+            synchronized (stripe) {
+                V currentValue = stripe.putIfAbsent(key, value);
+                return currentValue == null ? value : currentValue;
+            }
+        }
+
+    }
+
+    /**
+     * Bindings are compared by identity, as are the AST nodes of merged fields.
+     */
+    @RequiredArgsConstructor(access = PRIVATE)
+    @EqualsAndHashCode
+    private static final class Key {
+
+        private final Object binding;
+
+        private final MergedField field;
+
+        /**
+         * The values of the variables used by the field, or {@code null} for the key of the variable names themselves.
+         */
+        @Nullable
+        private final List<Object> variableValues;
+
+    }
+
+    private final StripedLruMap<Key, List<String>> variableNames;
+
+    private final StripedLruMap<Key, DataLoaderKey.Discriminator> discriminators;
+
+    OperationPlanCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalStateException(format("Invalid operation plan cache size: %d", maxEntries));
+        }
+        this.variableNames = new StripedLruMap<>(maxEntries);
+        this.discriminators = new StripedLruMap<>(maxEntries);
+    }
+
+    /**
+     * Gets the discriminator of the given field as bound by the given plan, planning it if it isn't known yet.
+     */
+    DataLoaderKey.Discriminator get(
+            Object binding,
+            DataFetchingEnvironment environment,
+            Supplier<DataLoaderKey.Discriminator> planner,
+            ResolverMetrics metrics
+    ) {
+        MergedField field = environment.getMergedField();
+        Key namesKey = new Key(binding, field, null);
+        List<String> names = variableNames.get(namesKey);
+        if (names == null) {
+            names = variableNames.putIfAbsent(namesKey, findVariableNames(environment));
+        }
+        List<Object> values = new ArrayList<>(names.size());
+        for (String name : names) {
+            values.add(environment.getVariables().get(name));
+        }
+        Key key = new Key(binding, field, values);
+        DataLoaderKey.Discriminator discriminator = discriminators.get(key);
+        if (discriminator != null) {
+            metrics.recordPlanCacheHit();
+            return discriminator;
+        }
+        metrics.recordPlanCacheMiss();
+        discriminator = planner.get();
+        DefaultSelection.expandAll(discriminator.getSelection());
+        return discriminators.putIfAbsent(key, discriminator);
+    }
+
+    private static List<String> findVariableNames(DataFetchingEnvironment environment) {
+        Set<String> names = new LinkedHashSet<>();
+        Set<String> visitedFragments = new HashSet<>();
+        environment
+                .getMergedField()
+                .getFields()
+                .forEach(field -> collectVariableNames(field, environment.getFragmentsByName(), visitedFragments, names));
+        return new ArrayList<>(names);
+    }
+
+    private static void collectVariableNames(
+            Node<?> node,
+            Map<String, FragmentDefinition> fragments,
+            Set<String> visitedFragments,
+            Set<String> names
+    ) {
+        if (node instanceof VariableReference) {
+            names.add(((VariableReference) node).getName());
+        } else if (node instanceof FragmentSpread) {
+            String fragmentName = ((FragmentSpread) node).getName();
+            FragmentDefinition fragment = fragments.get(fragmentName);
+            if (fragment != null && visitedFragments.add(fragmentName)) {
+                collectVariableNames(fragment, fragments, visitedFragments, names);
+            }
+        }
+        for (Node<?> child : node.getChildren()) {
+            collectVariableNames(child, fragments, visitedFragments, names);
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.qudini.gom;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * The results cached by a {@link Cached} resolver, shared by all the requests.
+ */
+final class ResolverCache {
+
+    @RequiredArgsConstructor(access = PRIVATE)
+    @EqualsAndHashCode
+    private static final class Key {
+
+        private final Object sourceKey;
+
+        private final DataLoaderKey.Discriminator discriminator;
+
+    }
+
+    @RequiredArgsConstructor(access = PRIVATE)
+    private static final class Entry {
+
+        private final Object value;
+
+        private final long expirationTime;
+
+    }
+
+    private final long ttl;
+
+    @Nullable
+    private final KeyExtractor keyExtractor;
+
+    private final ResolverMetrics metrics;
+
+    private final Map<Key, Entry> entries;
+
+    ResolverCache(Cached cached, @Nullable KeyExtractor keyExtractor, ResolverMetrics metrics) {
+        this.ttl = MILLISECONDS.toNanos(cached.ttlMillis());
+        this.keyExtractor = keyExtractor;
+        this.metrics = metrics;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > cached.maxEntries();
+            }
+
+        };
+    }
+
+    @Nullable
+    synchronized Object get(DataLoaderKey key) {
+        Key cacheKey = new Key(key.getSourceKey(), key.getDiscriminator());
+        Entry entry = entries.get(cacheKey);
+        if (entry != null && entry.expirationTime - System.nanoTime() < 0) {
+            entries.remove(cacheKey);
+            entry = null;
+        }
+        if (entry == null) {
+            metrics.recordCacheMiss();
+            return null;
+        } else {
+            metrics.recordCacheHit();
+            return entry.value;
+        }
+    }
+
+    /**
+     * Expands the selection of the key beforehand, for the entry not to keep the execution it comes from.
+     */
+    void put(DataLoaderKey key, Object value) {
+        DefaultSelection.expandAll(key.getDiscriminator().getSelection());
+        putExpanded(key, value);
+    }
+
+    private synchronized void putExpanded(DataLoaderKey key, Object value) {
+        entries.put(new Key(key.getSourceKey(), key.getDiscriminator()), new Entry(value, System.nanoTime() + ttl));
+    }
+
+    synchronized void invalidate(Object source) {
+        Object sourceKey = keyExtractor == null ? source : keyExtractor.extract(source);
+        entries.keySet().removeIf(key -> key.sourceKey.equals(sourceKey));
+    }
+
+    synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+}
@@ -1,34 +1,30 @@
 package com.qudini.gom;
 
-import graphql.GraphQLContext;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
-import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderOptions;
 
 import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.ServiceLoader;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
-import java.util.function.BinaryOperator;
-import java.util.function.Supplier;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
 import java.util.stream.Stream;
 
 import static com.qudini.gom.Reflections.getMethodAnnotatedWith;
 import static java.lang.String.format;
-import static java.util.Collections.unmodifiableSet;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 import static lombok.AccessLevel.PACKAGE;
 import static lombok.AccessLevel.PRIVATE;
 import static org.dataloader.DataLoaderFactory.newMappedDataLoader;
+import static org.dataloader.DataLoaderOptions.newOptions;
 
 @AllArgsConstructor(access = PRIVATE)
 @Getter(PACKAGE)
@@ -36,132 +32,179 @@ final class ResolverInspection {
 
     private final Converters converters;
 
-    private final Set<FieldWiring> fieldWirings = new HashSet<>();
+    private final ArgumentsNormalizer argumentsNormalizer;
 
-    private final Set<DataLoaderRegistrar> dataLoaderRegistrars = new HashSet<>();
+    private final Executor executor;
 
-    private int getSelectionDepth(MethodInvoker methodInvoker) {
-        return methodInvoker
-                .getFirstParameterAnnotation(Selection.class, Depth.class)
-                .map(Depth::value)
-                .orElse(1);
-    }
+    private final boolean blocking;
 
-    private Object argumentsOrSelection(MethodInvoker methodInvoker, Arguments arguments, Selection selection) {
-        return methodInvoker.hasParameterType(Arguments.class) ? arguments : selection;
-    }
+    private final BiConsumer<String, DataLoaderOptions> dataLoaderOptionsCustomizer;
 
-    private <R> CompletableFuture<R> invoke(
-            MethodInvoker methodInvoker,
-            @Nullable Object source,
-            Arguments arguments,
-            Selection selection,
-            GraphQLContext context
-    ) {
-        final Object returnedValue;
-        int parameterCount = methodInvoker.getParameterCount();
-        switch (parameterCount) {
+    @Nullable
+    private final OperationPlanCache planCache;
 
-            case 0:
-                returnedValue = methodInvoker.invoke();
-                break;
+    private final Map<Class<?>, ResolverWiring<?>> wirings;
 
-            case 1:
-                returnedValue = source == null
-                        ? methodInvoker.invoke(argumentsOrSelection(methodInvoker, arguments, selection))
-                        : methodInvoker.invoke(source);
-                break;
+    private final Set<FieldWiring> fieldWirings = new HashSet<>();
 
-            case 2:
-                returnedValue = source == null
-                        ? methodInvoker.invoke(arguments, selection)
-                        : methodInvoker.invoke(source, argumentsOrSelection(methodInvoker, arguments, selection));
-                break;
+    private final List<DataLoaderRegistrar> dataLoaderRegistrars = new ArrayList<>();
 
-            case 3:
-                returnedValue = methodInvoker.invoke(source, arguments, selection);
-                break;
+    private final Map<String, ResolverMetrics> metrics = new HashMap<>();
 
-            default:
-                throw new IllegalStateException(format("Invalid resolver: %s", methodInvoker));
+    private final Map<String, ResolverCache> caches = new HashMap<>();
 
-        }
-        return (CompletableFuture<R>) converters.convert(returnedValue, context);
+    private ResolverMetrics createMetrics(String type, String field) {
+        ResolverMetrics resolverMetrics = new ResolverMetrics();
+        metrics.put(type + "." + field, resolverMetrics);
+        return resolverMetrics;
     }
 
-    private void createBatchedFieldWiring(String type, String field, MethodInvoker methodInvoker) {
-        String dataLoaderKey = methodInvoker.toString();
-        Supplier<DataLoader<DataLoaderKey, Object>> dataLoaderSupplier = () -> newMappedDataLoader(keys -> {
-            Optional<GraphQLContext> maybeContext = keys
-                    .stream()
-                    .map(DataLoaderKey::getContext)
-                    .reduce(failIfDifferent());
-            List<CompletableFuture<Map<DataLoaderKey, Object>>> futures = keys
-                    .stream()
-                    .collect(groupingBy(DataLoaderKey::getDiscriminator))
-                    .entrySet()
-                    .stream()
-                    .map(entry -> {
-                        Map<Object, DataLoaderKey> keysBySource = entry
-                                .getValue()
-                                .stream()
-                                .collect(toMap(DataLoaderKey::getSource, identity()));
-                        return this
-                                .<Map<Object, Object>>invoke(
-                                        methodInvoker,
-                                        unmodifiableSet(keysBySource.keySet()),
-                                        entry.getKey().getArguments(),
-                                        entry.getKey().getSelection(),
-                                        maybeContext.orElseThrow(IllegalStateException::new)
-                                )
-                                .thenApply(resultsBySource -> resultsBySource
-                                        .entrySet()
-                                        .stream()
-                                        .collect(toMap(
-                                                sourceResultEntry -> keysBySource.get(sourceResultEntry.getKey()),
-                                                Map.Entry::getValue
-                                        ))
-                                );
-                    })
-                    .collect(toList());
-            return parallelise(futures)
-                    .thenApply(results -> results
-                            .stream()
-                            .reduce(ResolverInspection::merge)
-                            .orElseGet(Collections::emptyMap)
-                    );
-        });
-        dataLoaderRegistrars.add(
-                new DataLoaderRegistrar(
-                        dataLoaderKey,
-                        dataLoaderSupplier
-                )
+    private void createBatchedFieldWiring(
+            String type,
+            String field,
+            MethodInvoker methodInvoker,
+            InvocationPlan plan,
+            Batched batched,
+            @Nullable Cached cached,
+            ResolverMetrics resolverMetrics
+    ) {
+        if (batched.maxBatchSize() < 1 || batched.maxConcurrentChunks() < 1 || batched.maxParallelism() < 1) {
+            throw new IllegalStateException(format("Invalid batch sizing: %s", methodInvoker));
+        }
+        if (batched.maxCachedKeys() < 1) {
+            throw new IllegalStateException(format("Invalid batch caching: %s", methodInvoker));
+        }
+        KeyExtractor keyExtractor = batched.key().isEmpty() ? null : KeyExtractor.of(batched.key());
+        ResolverCache cache = null;
+        if (cached != null) {
+            if (cached.ttlMillis() < 1 || cached.maxEntries() < 1) {
+                throw new IllegalStateException(format("Invalid cache: %s", methodInvoker));
+            }
+            cache = new ResolverCache(cached, keyExtractor, resolverMetrics);
+            caches.put(type + "." + field, cache);
+        }
+        if (batched.timeoutMillis() < 0 || batched.hedgingPercentile() < 0 || batched.hedgingPercentile() >= 100) {
+            throw new IllegalStateException(format("Invalid batch timing: %s", methodInvoker));
+        }
+        if (plan.isArgumentsGrouped() && methodInvoker.hasParameterType(Arguments.class)) {
+            throw new IllegalStateException(format("Invalid resolver: %s", methodInvoker));
+        }
+        BatchedLoader batchedLoader = new BatchedLoader(
+                plan,
+                converters,
+                batched,
+                Grouping.of(batched),
+                executor,
+                keyExtractor,
+                batched.hedgingPercentile() > 0 ? new LatencyTracker(batched.hedgingPercentile()) : null,
+                cache,
+                resolverMetrics
+        );
+        DataLoaderRegistrar registrar = new DataLoaderRegistrar(
+                dataLoaderRegistrars.size(),
+                methodInvoker.toString(),
+                () -> newMappedDataLoader(batchedLoader, createDataLoaderOptions(type, field, batched))
         );
-        int selectionDepth = getSelectionDepth(methodInvoker);
+        dataLoaderRegistrars.add(registrar);
         fieldWirings.add(new FieldWiring(
                 type,
                 field,
-                environment -> environment
-                        .<DataLoaderKey, Object>getDataLoader(dataLoaderKey)
-                        .load(new DataLoaderKey(environment, selectionDepth))
+                environment -> registrar
+                        .getDataLoader(environment.getDataLoaderRegistry())
+                        .load(new DataLoaderKey(
+                                environment,
+                                plan.discriminate(environment, argumentsNormalizer),
+                                keyExtractor
+                        ))
         ));
     }
 
-    private void createSimpleFieldWiring(String type, String field, MethodInvoker methodInvoker) {
-        int selectionDepth = getSelectionDepth(methodInvoker);
+    /**
+     * Called each time a data loader gets created, so that the cache map isn't shared between requests.
+     */
+    private DataLoaderOptions createDataLoaderOptions(String type, String field, Batched batched) {
+        DataLoaderOptions options = newOptions().setCachingEnabled(batched.caching());
+        if (batched.maxCachedKeys() < Integer.MAX_VALUE) {
+            options.setCacheMap(new LruCacheMap<>(batched.maxCachedKeys()));
+        }
+        dataLoaderOptionsCustomizer.accept(type + "." + field, options);
+        return options;
+    }
+
+    private void createSimpleFieldWiring(String type, String field, InvocationPlan plan) {
         fieldWirings.add(new FieldWiring(
                 type,
                 field,
-                environment -> invoke(
-                        methodInvoker,
-                        environment.getSource(),
-                        new DefaultArguments(environment),
-                        new DefaultSelection(environment, selectionDepth),
-                        environment.getGraphQlContext()
-                )
+                plan.toDataFetcher(converters)
         ));
     }
 
+    private void createFieldWiring(String type, Method annotatedMethod, MethodInvoker methodInvoker) {
+        String field = annotatedMethod.getDeclaredAnnotation(FieldResolver.class).value();
+        boolean blockingMethod = Optional
+                .ofNullable(annotatedMethod.getDeclaredAnnotation(Blocking.class))
+                .map(Blocking::value)
+                .orElse(blocking);
+        ResolverMetrics resolverMetrics = createMetrics(type, field);
+        ConcurrencyLimiter limiter = Optional
+                .ofNullable(annotatedMethod.getDeclaredAnnotation(ConcurrencyLimit.class))
+                .map(concurrencyLimit -> new ConcurrencyLimiter(methodInvoker, concurrencyLimit, resolverMetrics))
+                .orElse(null);
+        InvocationPlan plan = InvocationPlan.of(
+                methodInvoker,
+                annotatedMethod.isAnnotationPresent(Batched.class),
+                blockingMethod ? executor : null,
+                limiter,
+                annotatedMethod.isAnnotationPresent(Memoized.class),
+                planCache,
+                resolverMetrics
+        );
+        if (annotatedMethod.isAnnotationPresent(Batched.class)) {
+            if (annotatedMethod.isAnnotationPresent(Memoized.class)) {
+                throw new IllegalStateException(format("Batched resolvers can't be memoized: %s", methodInvoker));
+            }
+            createBatchedFieldWiring(
+                    type,
+                    field,
+                    methodInvoker,
+                    plan,
+                    annotatedMethod.getDeclaredAnnotation(Batched.class),
+                    annotatedMethod.getDeclaredAnnotation(Cached.class),
+                    resolverMetrics
+            );
+        } else if (annotatedMethod.isAnnotationPresent(Cached.class)) {
+            throw new IllegalStateException(format("Only batched resolvers can be cached: %s", methodInvoker));
+        } else {
+            createSimpleFieldWiring(type, field, plan);
+        }
+    }
+
+    private <R> void wire(ResolverWiring<R> wiring, String type, Object resolver) {
+        wiring.wire(wiring.getResolverClass().cast(resolver), new ResolverWiring.Registry() {
+
+            @Override
+            public void register(Method method, ResolverWiring.Invoker0 invoker) {
+                createFieldWiring(type, method, MethodInvoker.of(method, resolver, invoker));
+            }
+
+            @Override
+            public void register(Method method, ResolverWiring.Invoker1 invoker) {
+                createFieldWiring(type, method, MethodInvoker.of(method, resolver, invoker));
+            }
+
+            @Override
+            public void register(Method method, ResolverWiring.Invoker2 invoker) {
+                createFieldWiring(type, method, MethodInvoker.of(method, resolver, invoker));
+            }
+
+            @Override
+            public void register(Method method, ResolverWiring.Invoker3 invoker) {
+                createFieldWiring(type, method, MethodInvoker.of(method, resolver, invoker));
+            }
+
+        });
+    }
+
     private void inspect(Object resolver) {
         Stream
                 .of(resolver)
@@ -169,56 +212,40 @@ final class ResolverInspection {
                 .filter(clazz -> clazz.isAnnotationPresent(TypeResolver.class))
                 .forEach(clazz -> {
                     String type = clazz.getAnnotation(TypeResolver.class).value();
-                    Stream
-                            .of(clazz.getMethods())
-                            .flatMap(method -> getMethodAnnotatedWith(method, FieldResolver.class).map(Stream::of).orElseGet(Stream::empty))
-                            .forEach(annotatedMethod -> {
-                                String field = annotatedMethod.getDeclaredAnnotation(FieldResolver.class).value();
-                                MethodInvoker methodInvoker = MethodInvoker.of(annotatedMethod, resolver);
-                                if (annotatedMethod.isAnnotationPresent(Batched.class)) {
-                                    createBatchedFieldWiring(type, field, methodInvoker);
-                                } else {
-                                    createSimpleFieldWiring(type, field, methodInvoker);
-                                }
-                            });
+                    ResolverWiring<?> wiring = wirings.get(clazz);
+                    if (wiring != null) {
+                        wire(wiring, type, resolver);
+                    } else {
+                        Stream
+                                .of(clazz.getMethods())
+                                .flatMap(method -> getMethodAnnotatedWith(method, FieldResolver.class).map(Stream::of).orElseGet(Stream::empty))
+                                .forEach(annotatedMethod -> createFieldWiring(type, annotatedMethod, MethodInvoker.of(annotatedMethod, resolver)));
+                    }
                 });
     }
 
-    static ResolverInspection inspect(Collection<Object> resolvers, Converters converters) {
-        ResolverInspection inspector = new ResolverInspection(converters);
+    static ResolverInspection inspect(
+            Collection<Object> resolvers,
+            Converters converters,
+            ArgumentsNormalizer argumentsNormalizer,
+            Executor executor,
+            boolean blocking,
+            BiConsumer<String, DataLoaderOptions> dataLoaderOptionsCustomizer,
+            int maxCachedOperationPlans
+    ) {
+        Map<Class<?>, ResolverWiring<?>> wirings = new HashMap<>();
+        ServiceLoader.load(ResolverWiring.class).forEach(wiring -> wirings.put(wiring.getResolverClass(), wiring));
+        ResolverInspection inspector = new ResolverInspection(
+                converters,
+                argumentsNormalizer,
+                executor,
+                blocking,
+                dataLoaderOptionsCustomizer,
+                maxCachedOperationPlans == 0 ? null : new OperationPlanCache(maxCachedOperationPlans),
+                wirings
+        );
         resolvers.forEach(inspector::inspect);
         return inspector;
     }
 
-    private static <T> CompletableFuture<List<T>> parallelise(List<CompletableFuture<T>> futures) {
-        return CompletableFuture
-                .allOf(futures.toArray(new CompletableFuture[0]))
-                .thenApply(x -> futures
-                        .stream()
-                        .map(CompletableFuture::join)
-                        .collect(toList())
-                );
-    }
-
-    private static <K, V> Map<K, V> merge(Map<K, V> firstMap, Map<K, V> secondMap) {
-        Map<K, V> resultingMap = new HashMap<>();
-        resultingMap.putAll(firstMap);
-        resultingMap.putAll(secondMap);
-        return resultingMap;
-    }
-
-    private static <T> BinaryOperator<T> failIfDifferent() {
-        return (x, y) -> {
-            if (x.equals(y)) {
-                return x;
-            } else {
-                throw new IllegalStateException(format(
-                        "%s and %s shouldn't have been different",
-                        x,
-                        y
-                ));
-            }
-        };
-    }
-
 }
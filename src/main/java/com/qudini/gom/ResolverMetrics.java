@@ -0,0 +1,209 @@
+package com.qudini.gom;
+
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static lombok.AccessLevel.PACKAGE;
+
+/**
+ * Live counters of a resolver method, see {@link Gom#getMetrics()}.
+ */
+@NoArgsConstructor(access = PACKAGE)
+public final class ResolverMetrics {
+
+    private final LongAdder batches = new LongAdder();
+
+    private final LongAdder chunks = new LongAdder();
+
+    private final LongAdder keys = new LongAdder();
+
+    private final LongAccumulator largestChunk = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder mergedGroups = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    private final LongAdder hedges = new LongAdder();
+
+    private final LongAdder wonHedges = new LongAdder();
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private final LongAdder planCacheHits = new LongAdder();
+
+    private final LongAdder planCacheMisses = new LongAdder();
+
+    private volatile int concurrencyLimit;
+
+    private volatile int inFlight;
+
+    void recordBatch() {
+        batches.increment();
+    }
+
+    void recordChunk(int size) {
+        chunks.increment();
+        keys.add(size);
+        largestChunk.accumulate(size);
+    }
+
+    void recordMergedGroups(int count) {
+        mergedGroups.add(count);
+    }
+
+    void recordRejection() {
+        rejections.increment();
+    }
+
+    void recordHedge() {
+        hedges.increment();
+    }
+
+    void recordWonHedge() {
+        wonHedges.increment();
+    }
+
+    void recordCacheHit() {
+        cacheHits.increment();
+    }
+
+    void recordCacheMiss() {
+        cacheMisses.increment();
+    }
+
+    void recordPlanCacheHit() {
+        planCacheHits.increment();
+    }
+
+    void recordPlanCacheMiss() {
+        planCacheMisses.increment();
+    }
+
+    void recordConcurrency(int limit, int inFlight) {
+        this.concurrencyLimit = limit;
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * The number of times the data loader of a {@link Batched} resolver has been dispatched.
+     */
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * The number of times a {@link Batched} resolver has been called.
+     */
+    public long getChunkCount() {
+        return chunks.sum();
+    }
+
+    /**
+     * The number of sources a {@link Batched} resolver has received in total.
+     */
+    public long getKeyCount() {
+        return keys.sum();
+    }
+
+    public long getLargestChunkSize() {
+        return largestChunk.get();
+    }
+
+    /**
+     * The number of calls of a {@link Batched} resolver saved by normalizing arguments, see {@link ArgumentsNormalizer}.
+     */
+    public long getMergedGroupCount() {
+        return mergedGroups.sum();
+    }
+
+    /**
+     * The current limit of a resolver annotated with {@link ConcurrencyLimit}, {@code 0} otherwise.
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * The number of invocations of a resolver annotated with {@link ConcurrencyLimit} currently running.
+     */
+    public int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * The number of invocations of a resolver annotated with {@link ConcurrencyLimit} that failed fast.
+     */
+    public long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * The number of duplicate calls made by a {@link Batched} resolver hedging its calls.
+     */
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    /**
+     * The number of duplicate calls that completed before the call they duplicated.
+     */
+    public long getWonHedgeCount() {
+        return wonHedges.sum();
+    }
+
+    /**
+     * The number of sources of a {@link Cached} resolver served from the cache.
+     */
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * The number of sources of a {@link Cached} resolver missing from the cache.
+     */
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * The number of times the arguments and selection of a field were found in the operation plan cache, see
+     * {@link Gom.Builder#maxCachedOperationPlans(int)}.
+     */
+    public long getPlanCacheHitCount() {
+        return planCacheHits.sum();
+    }
+
+    /**
+     * The number of times the arguments and selection of a field had to be extracted as they were missing from the
+     * operation plan cache.
+     */
+    public long getPlanCacheMissCount() {
+        return planCacheMisses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "batches=%d, chunks=%d, keys=%d, largestChunk=%d, mergedGroups=%d, concurrencyLimit=%d, inFlight=%d, rejections=%d, hedges=%d, wonHedges=%d, cacheHits=%d, cacheMisses=%d, planCacheHits=%d, planCacheMisses=%d",
+                getBatchCount(),
+                getChunkCount(),
+                getKeyCount(),
+                getLargestChunkSize(),
+                getMergedGroupCount(),
+                getConcurrencyLimit(),
+                getInFlightCount(),
+                getRejectionCount(),
+                getHedgeCount(),
+                getWonHedgeCount(),
+                getCacheHitCount(),
+                getCacheMissCount(),
+                getPlanCacheHitCount(),
+                getPlanCacheMissCount()
+        );
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.qudini.gom;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Method;
+
+import static java.lang.String.format;
+
+/**
+ * Wires the resolver methods of a {@link TypeResolver} without scanning its class hierarchy, by calling them directly.
+ * <p>
+ * Implementations are generated by {@link com.qudini.gom.processor.ResolverWiringProcessor} and registered as services,
+ * {@link Gom.Builder#build()} then uses them instead of reflection for the resolvers they handle.
+ *
+ * @param <R> the type of the resolver
+ */
+public interface ResolverWiring<R> {
+
+    @FunctionalInterface
+    interface Invoker0 {
+
+        Object invoke() throws Throwable;
+
+    }
+
+    @FunctionalInterface
+    interface Invoker1 {
+
+        Object invoke(Object argument) throws Throwable;
+
+    }
+
+    @FunctionalInterface
+    interface Invoker2 {
+
+        Object invoke(Object firstArgument, Object secondArgument) throws Throwable;
+
+    }
+
+    @FunctionalInterface
+    interface Invoker3 {
+
+        Object invoke(Object firstArgument, Object secondArgument, Object thirdArgument) throws Throwable;
+
+    }
+
+    /**
+     * Receives the resolver methods, the given {@link Method} being the one annotated with {@link FieldResolver}: it is only
+     * read for its annotations and signature, while the invoker is what actually gets called.
+     */
+    interface Registry {
+
+        void register(Method method, Invoker0 invoker);
+
+        void register(Method method, Invoker1 invoker);
+
+        void register(Method method, Invoker2 invoker);
+
+        void register(Method method, Invoker3 invoker);
+
+    }
+
+    @Nonnull
+    Class<R> getResolverClass();
+
+    void wire(R resolver, Registry registry);
+
+    @Nonnull
+    static Method getMethod(Class<?> clazz, String name, Class<?>... parameterTypes) {
+        try {
+            return clazz.getDeclaredMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(format("Outdated wiring, %s couldn't be found in %s", name, clazz), e);
+        }
+    }
+
+}
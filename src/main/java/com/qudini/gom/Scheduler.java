@@ -0,0 +1,69 @@
+package com.qudini.gom;
+
+import lombok.NoArgsConstructor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static lombok.AccessLevel.PRIVATE;
+
+/**
+ * Delays tasks on a single daemon thread, which must only be used to complete futures or hand work over to another
+ * executor.
+ */
+@NoArgsConstructor(access = PRIVATE)
+final class Scheduler {
+
+    private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "gom-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    static ScheduledFuture<?> schedule(Runnable task, long delayNanos) {
+        return EXECUTOR.schedule(task, delayNanos, NANOSECONDS);
+    }
+
+    /**
+     * Fails the returned future with a {@link TimeoutException} if the given one didn't complete in time, failing the
+     * given one first so that whatever depends on it (e.g. a concurrency limit slot) is released before the timeout is
+     * reported.
+     */
+    static <T> CompletableFuture<T> within(CompletableFuture<T> future, long timeoutNanos, Supplier<String> message) {
+        if (future.isDone()) {
+            return future;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicReference<TimeoutException> timeoutException = new AtomicReference<>();
+        ScheduledFuture<?> timeout = schedule(
+                () -> {
+                    TimeoutException e = new TimeoutException(message.get());
+                    timeoutException.set(e);
+                    future.completeExceptionally(e);
+                    result.completeExceptionally(e);
+                },
+                timeoutNanos
+        );
+        future.whenComplete((value, error) -> {
+            timeout.cancel(false);
+            if (error == null) {
+                result.complete(value);
+            } else if (error != timeoutException.get()) {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+}
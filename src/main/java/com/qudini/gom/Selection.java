@@ -1,9 +1,10 @@
 package com.qudini.gom;
 
 import java.util.Arrays;
+import java.util.Map;
 import java.util.stream.Stream;
 
-import static java.util.Collections.emptySet;
+import static java.util.Collections.emptyMap;
 import static java.util.stream.Collectors.toSet;
 
 public interface Selection {
@@ -12,12 +13,30 @@ public interface Selection {
 
     boolean contains(String field);
 
+    /**
+     * The arguments of each selection of the given field, keyed by alias (or by name when not aliased), for resolvers
+     * fetching nested fields themselves: empty if the field isn't selected. Implementations not knowing the arguments of
+     * their fields return nothing.
+     */
+    default Map<String, Arguments> getArguments(String field) {
+        return emptyMap();
+    }
+
     Stream<String> stream();
 
     Selection subSelection(String prefix);
 
+    /**
+     * Keeps the fields selected for the given object type only, when the selected field is an interface or a union
+     * (e.g. through {@code ... on VideoArticle}): their own sub-selections are not restricted. Implementations not
+     * knowing the types of their fields keep them all.
+     */
+    default Selection forType(String typeName) {
+        return this;
+    }
+
     static Selection empty() {
-        return new DefaultSelection(emptySet());
+        return DefaultSelection.EMPTY;
     }
 
     static Selection of(String... fields) {
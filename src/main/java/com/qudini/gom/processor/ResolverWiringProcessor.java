@@ -0,0 +1,289 @@
+package com.qudini.gom.processor;
+
+import com.qudini.gom.Batched;
+import com.qudini.gom.Depth;
+import com.qudini.gom.FieldResolver;
+import com.qudini.gom.ResolverWiring;
+import com.qudini.gom.Selection;
+import com.qudini.gom.TypeResolver;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static javax.lang.model.util.ElementFilter.methodsIn;
+import static javax.lang.model.util.ElementFilter.typesIn;
+
+/**
+ * Generates a {@link ResolverWiring} for each {@link TypeResolver} it can reach from its package, so that GOM calls the
+ * resolver methods directly instead of discovering and invoking them by reflection.
+ * <p>
+ * It is opt-in: register it as an annotation processor of the compilation of your resolvers.
+ */
+@SupportedAnnotationTypes("com.qudini.gom.TypeResolver")
+public final class ResolverWiringProcessor extends AbstractProcessor {
+
+    private static final String SERVICES_FILE = "META-INF/services/" + ResolverWiring.class.getName();
+
+    private static final String CLASS_NAME_SUFFIX = "_ResolverWiring";
+
+    private static final String[] ARGUMENT_NAMES = {"first", "second", "third"};
+
+    private final Set<String> wirings = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        if (roundEnvironment.processingOver()) {
+            writeServicesFile();
+        } else {
+            typesIn(roundEnvironment.getElementsAnnotatedWith(TypeResolver.class)).forEach(this::process);
+        }
+        return false;
+    }
+
+    private void process(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return;
+        }
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        List<ExecutableElement> methods = methodsIn(processingEnv.getElementUtils().getAllMembers(type))
+                .stream()
+                .filter(method -> method.getModifiers().contains(Modifier.PUBLIC))
+                .filter(method -> getMethodAnnotatedWith(method).isPresent())
+                .collect(toList());
+        boolean reachable = isReachable(type.asType(), packageElement) && methods.stream().allMatch(method -> {
+            ExecutableElement annotatedMethod = getMethodAnnotatedWith(method).orElseThrow(IllegalStateException::new);
+            return isReachable(annotatedMethod.getEnclosingElement().asType(), packageElement)
+                    && annotatedMethod.getParameters().stream().allMatch(parameter -> isReachable(parameter.asType(), packageElement));
+        });
+        if (!reachable) {
+            note(type, "%s isn't reachable from its package, it will be wired by reflection", type);
+        } else if (methods.stream().allMatch(this::isValid)) {
+            generate(type, packageElement, methods);
+        }
+    }
+
+    private boolean isValid(ExecutableElement method) {
+        ExecutableElement annotatedMethod = getMethodAnnotatedWith(method).orElseThrow(IllegalStateException::new);
+        if (method.getParameters().size() > ARGUMENT_NAMES.length) {
+            processingEnv.getMessager().printMessage(
+                    Diagnostic.Kind.ERROR,
+                    format("Resolver methods take at most %d parameters", ARGUMENT_NAMES.length),
+                    method
+            );
+            return false;
+        }
+        TypeMirror selectionType = processingEnv.getElementUtils().getTypeElement(Selection.class.getCanonicalName()).asType();
+        annotatedMethod
+                .getParameters()
+                .stream()
+                .filter(parameter -> parameter.getAnnotation(Depth.class) != null)
+                .filter(parameter -> !processingEnv.getTypeUtils().isSameType(parameter.asType(), selectionType))
+                .forEach(parameter -> warn(parameter, "@Depth is ignored on parameters that aren't of type %s", Selection.class.getName()));
+        if (annotatedMethod.getAnnotation(Batched.class) != null && annotatedMethod.getParameters().isEmpty()) {
+            warn(method, "@Batched resolvers receive their sources as first parameter");
+        }
+        return true;
+    }
+
+    /**
+     * Mirrors {@link com.qudini.gom.Reflections#getMethodAnnotatedWith}: the annotation is looked up on the method itself,
+     * then on the methods it overrides in the superclasses.
+     */
+    private Optional<ExecutableElement> getMethodAnnotatedWith(ExecutableElement method) {
+        if (method.getAnnotation(FieldResolver.class) != null) {
+            return Optional.of(method);
+        }
+        TypeMirror superclass = ((TypeElement) method.getEnclosingElement()).getSuperclass();
+        while (superclass.getKind() == TypeKind.DECLARED) {
+            TypeElement superElement = (TypeElement) ((DeclaredType) superclass).asElement();
+            Optional<ExecutableElement> superMethod = methodsIn(superElement.getEnclosedElements())
+                    .stream()
+                    .filter(candidate -> hasSameSignature(method, candidate))
+                    .findFirst();
+            if (superMethod.isPresent()) {
+                return getMethodAnnotatedWith(superMethod.get());
+            }
+            superclass = superElement.getSuperclass();
+        }
+        return Optional.empty();
+    }
+
+    private boolean hasSameSignature(ExecutableElement method, ExecutableElement candidate) {
+        return method.getSimpleName().contentEquals(candidate.getSimpleName())
+                && getErasedParameterTypes(method).equals(getErasedParameterTypes(candidate));
+    }
+
+    private List<String> getErasedParameterTypes(ExecutableElement method) {
+        return method
+                .getParameters()
+                .stream()
+                .map(VariableElement::asType)
+                .map(this::erase)
+                .collect(toList());
+    }
+
+    private String erase(TypeMirror type) {
+        return processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private boolean isReachable(TypeMirror type, PackageElement packageElement) {
+        switch (type.getKind()) {
+            case ARRAY:
+                return isReachable(((ArrayType) type).getComponentType(), packageElement);
+            case DECLARED:
+                return isReachable(((DeclaredType) type).asElement(), packageElement);
+            case TYPEVAR:
+                return isReachable(processingEnv.getTypeUtils().erasure(type), packageElement);
+            default:
+                return type.getKind().isPrimitive();
+        }
+    }
+
+    private boolean isReachable(Element element, PackageElement packageElement) {
+        if (element.getKind() == ElementKind.PACKAGE) {
+            return true;
+        }
+        boolean local = element instanceof TypeElement && ((TypeElement) element).getNestingKind().isNested()
+                && ((TypeElement) element).getNestingKind() != NestingKind.MEMBER;
+        boolean visible = element.getModifiers().contains(Modifier.PUBLIC)
+                || !element.getModifiers().contains(Modifier.PRIVATE)
+                && processingEnv.getElementUtils().getPackageOf(element).equals(packageElement);
+        return !local && visible && isReachable(element.getEnclosingElement(), packageElement);
+    }
+
+    private void generate(TypeElement type, PackageElement packageElement, List<ExecutableElement> methods) {
+        String packageName = packageElement.getQualifiedName().toString();
+        String simpleName = processingEnv
+                .getElementUtils()
+                .getBinaryName(type)
+                .toString()
+                .substring(packageName.isEmpty() ? 0 : packageName.length() + 1)
+                .replace('$', '_') + CLASS_NAME_SUFFIX;
+        String resolverName = erase(type.asType());
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+        try (PrintWriter writer = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter())) {
+            if (!packageName.isEmpty()) {
+                writer.printf("package %s;%n%n", packageName);
+            }
+            writer.printf("/**%n * Generated by %s, do not edit.%n */%n", getClass().getName());
+            writer.printf("@SuppressWarnings({\"unchecked\", \"rawtypes\"})%n");
+            writer.printf("public final class %s implements %s<%s> {%n%n", simpleName, ResolverWiring.class.getName(), resolverName);
+            writer.printf("    @Override%n");
+            writer.printf("    public Class<%s> getResolverClass() {%n", resolverName);
+            writer.printf("        return %s.class;%n", resolverName);
+            writer.printf("    }%n%n");
+            writer.printf("    @Override%n");
+            writer.printf("    public void wire(%s resolver, %s.Registry registry) {%n", resolverName, ResolverWiring.class.getName());
+            methods.forEach(method -> writeRegistration(writer, method));
+            writer.printf("    }%n%n");
+            writer.printf("}%n");
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, format("%s couldn't be generated: %s", qualifiedName, e), type);
+            return;
+        }
+        wirings.add(qualifiedName);
+    }
+
+    private void writeRegistration(PrintWriter writer, ExecutableElement method) {
+        ExecutableElement annotatedMethod = getMethodAnnotatedWith(method).orElseThrow(IllegalStateException::new);
+        List<String> parameterTypes = getErasedParameterTypes(method);
+        String parameterNames = IntStream
+                .range(0, parameterTypes.size())
+                .mapToObj(i -> ARGUMENT_NAMES[i])
+                .collect(joining(", "));
+        String arguments = IntStream
+                .range(0, parameterTypes.size())
+                .mapToObj(i -> format("(%s) %s", parameterTypes.get(i), ARGUMENT_NAMES[i]))
+                .collect(joining(", "));
+        String target = method.getModifiers().contains(Modifier.STATIC)
+                ? erase(method.getEnclosingElement().asType())
+                : "resolver";
+        String call = format("%s.%s(%s)", target, method.getSimpleName(), arguments);
+        String body = method.getReturnType().getKind() == TypeKind.VOID
+                ? format("{%n            %s;%n            return null;%n        }", call)
+                : call;
+        String methodLookup = Stream
+                .concat(
+                        Stream.of(erase(annotatedMethod.getEnclosingElement().asType()) + ".class", "\"" + annotatedMethod.getSimpleName() + "\""),
+                        getErasedParameterTypes(annotatedMethod).stream().map(parameterType -> parameterType + ".class")
+                )
+                .collect(joining(", "));
+        writer.printf("        registry.register(%n");
+        writer.printf("                %s.getMethod(%s),%n", ResolverWiring.class.getName(), methodLookup);
+        writer.printf("                (%s) -> %s%n", parameterNames, body);
+        writer.printf("        );%n");
+    }
+
+    private void writeServicesFile() {
+        if (wirings.isEmpty()) {
+            return;
+        }
+        Set<String> services = new TreeSet<>(wirings);
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE);
+            try (Reader reader = existing.openReader(true); BufferedReader bufferedReader = new BufferedReader(reader)) {
+                bufferedReader.lines().map(String::trim).filter(line -> !line.isEmpty()).forEach(services::add);
+            }
+        } catch (IOException e) {
+            // no wirings have been generated by a previous compilation
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICES_FILE);
+            try (Writer writer = new PrintWriter(new OutputStreamWriter(file.openOutputStream(), UTF_8))) {
+                for (String service : services) {
+                    writer.write(service);
+                    writer.write(System.lineSeparator());
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, format("%s couldn't be written: %s", SERVICES_FILE, e));
+        }
+    }
+
+    private void note(Element element, String message, Object... arguments) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, format(message, arguments), element);
+    }
+
+    private void warn(Element element, String message, Object... arguments) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, format(message, arguments), element);
+    }
+
+}
@@ -26,6 +26,7 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static lombok.AccessLevel.PRIVATE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
@@ -433,6 +434,37 @@ public final class ArgumentsTest {
         assertEquals("value", arguments.getNullableInputArray("key").get().get().get(0).get("subkey"));
     }
 
+    @Test
+    public void cachedViews() {
+        Arguments arguments = new DefaultArguments(new HashMap<String, Object>() {{
+            put("input", new HashMap<String, Object>() {{
+                put("subkey", "value");
+            }});
+            put("inputs", singletonList(new HashMap<String, Object>()));
+            put("enums", asList("C", "A"));
+        }});
+        assertSame(arguments.getInput("input"), arguments.getInput("input"));
+        assertSame(arguments.getInputArray("inputs"), arguments.getInputArray("inputs"));
+        assertSame(arguments.getEnumArray("enums", MyEnum.class), arguments.getEnumArray("enums", MyEnum.class));
+        assertEquals(asList("C", "A"), arguments.get("enums"));
+    }
+
+    @Test
+    public void viewsEquality() {
+        Map<String, Object> values = new HashMap<String, Object>() {{
+            put("input", new HashMap<String, Object>() {{
+                put("subkey", "value");
+            }});
+        }};
+        Arguments arguments = new DefaultArguments(values);
+        Arguments otherArguments = new DefaultArguments(values);
+        int hashCode = arguments.hashCode();
+        assertEquals("value", arguments.getInput("input").get("subkey"));
+        assertEquals(hashCode, arguments.hashCode());
+        assertEquals(otherArguments, arguments);
+        assertEquals(otherArguments.hashCode(), arguments.hashCode());
+    }
+
     @Test
     public void empty() {
         Arguments arguments = Arguments.empty();
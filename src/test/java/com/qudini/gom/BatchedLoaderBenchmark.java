@@ -0,0 +1,106 @@
+package com.qudini.gom;
+
+import graphql.GraphQLContext;
+import lombok.NoArgsConstructor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static graphql.schema.DataFetchingEnvironmentImpl.newDataFetchingEnvironment;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.IntStream.range;
+import static lombok.AccessLevel.PUBLIC;
+
+/**
+ * Measures the batch function of a {@link Batched} resolver dispatched with {@code keyCount} keys spread over
+ * {@code groupCount} discriminator groups, run with e.g.
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main BatchedLoaderBenchmark -prof gc}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchedLoaderBenchmark {
+
+    @NoArgsConstructor(access = PUBLIC)
+    public static final class MyResolver {
+
+        private final Map<Integer, Map<Integer, Integer>> resultsByGroup = new HashMap<>();
+
+        @Batched
+        public Map<Integer, Integer> resolve(Set<Integer> sources, Arguments arguments) {
+            return resultsByGroup.get(arguments.<Integer>get("group"));
+        }
+
+    }
+
+    @Param("10000")
+    public int keyCount;
+
+    @Param({"1", "10", "50"})
+    public int groupCount;
+
+    private BatchedLoader batchedLoader;
+
+    private Set<DataLoaderKey> keys;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        MyResolver resolver = new MyResolver();
+        GraphQLContext context = GraphQLContext.newContext().build();
+        List<DataLoaderKey.Discriminator> discriminators = range(0, groupCount)
+                .mapToObj(group -> new DataLoaderKey.Discriminator(
+                        new DefaultArguments(singletonMap("group", group)),
+                        Selection.empty()
+                ))
+                .collect(toList());
+        keys = new HashSet<>();
+        range(0, keyCount).forEach(source -> {
+            int group = source % groupCount;
+            resolver.resultsByGroup.computeIfAbsent(group, g -> new HashMap<>()).put(source, source);
+            keys.add(new DataLoaderKey(
+                    newDataFetchingEnvironment().source(source).graphQLContext(context).build(),
+                    discriminators.get(group),
+                    null
+            ));
+        });
+        Method method = MyResolver.class.getMethod("resolve", Set.class, Arguments.class);
+        Batched batched = method.getAnnotation(Batched.class);
+        batchedLoader = new BatchedLoader(
+                InvocationPlan.of(MethodInvoker.of(method, resolver), true, null, null, false, null, new ResolverMetrics()),
+                Converters.newConverters().build(),
+                batched,
+                Grouping.of(batched),
+                Runnable::run,
+                null,
+                null,
+                null,
+                new ResolverMetrics()
+        );
+    }
+
+    @Benchmark
+    public Map<DataLoaderKey, Object> load() {
+        return batchedLoader.load(keys).toCompletableFuture().join();
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.qudini.gom;
+
+import com.qudini.gom.utils.Context;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.qudini.gom.Gom.newGom;
+import static com.qudini.gom.utils.QueryRunner.callExpectingData;
+import static com.qudini.gom.utils.QueryRunner.callExpectingErrors;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static lombok.AccessLevel.PRIVATE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class ConcurrencyLimitTest {
+
+    @RequiredArgsConstructor(access = PRIVATE)
+    @Getter
+    public static final class MyType {
+
+        private final String name;
+
+    }
+
+    @NoArgsConstructor(access = PRIVATE)
+    @TypeResolver("Query")
+    public static final class QueryResolver {
+
+        @FieldResolver("myTypes")
+        public List<MyType> myTypes() {
+            return asList(new MyType("foo"), new MyType("bar"));
+        }
+
+    }
+
+    private static CompletableFuture<String> delay(String value, AtomicInteger running, AtomicInteger maxRunning) {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        return supplyAsync(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return value;
+        });
+    }
+
+    @Test
+    public void failsFast() {
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @ConcurrencyLimit(1)
+            @FieldResolver("name")
+            public CompletableFuture<String> name(MyType myType) {
+                return delay(myType.getName(), running, maxRunning);
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(), new MyTypeResolver()))
+                .build();
+        assertEquals(1, callExpectingErrors(gom, Context::new).size());
+        ResolverMetrics metrics = gom.getMetrics().get("MyType.name");
+        assertEquals(1, metrics.getRejectionCount());
+        assertEquals(1, metrics.getConcurrencyLimit());
+        assertEquals(0, metrics.getInFlightCount());
+    }
+
+    @Test
+    public void queues() {
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @ConcurrencyLimit(value = 1, maxQueueSize = 1)
+            @FieldResolver("name")
+            public CompletableFuture<String> name(MyType myType) {
+                return delay(myType.getName(), running, maxRunning);
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(), new MyTypeResolver()))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foo", myTypes.get(0).get("name"));
+        assertEquals("bar", myTypes.get(1).get("name"));
+        assertEquals(1, maxRunning.get());
+        assertEquals(0, gom.getMetrics().get("MyType.name").getRejectionCount());
+    }
+
+    @Test
+    public void adapts() {
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @ConcurrencyLimit(value = 4, adaptive = true, latencyThresholdMillis = 1)
+            @FieldResolver("name")
+            public CompletableFuture<String> name(MyType myType) {
+                return delay(myType.getName(), running, maxRunning);
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(), new MyTypeResolver()))
+                .build();
+        callExpectingData(gom, new Context());
+        assertEquals(2, maxRunning.get());
+        assertTrue(gom.getMetrics().get("MyType.name").getConcurrencyLimit() < 4);
+    }
+
+    @Test
+    public void releasesTimedOut() {
+        AtomicBoolean hanging = new AtomicBoolean(true);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @ConcurrencyLimit(1)
+            @Batched(timeoutMillis = 50)
+            @FieldResolver("name")
+            public CompletableFuture<Map<MyType, String>> name(Set<MyType> myTypes) {
+                return hanging.getAndSet(false)
+                        ? new CompletableFuture<>()
+                        : completedFuture(myTypes.stream().collect(toMap(identity(), MyType::getName)));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(), new MyTypeResolver()))
+                .build();
+        assertEquals(2, callExpectingErrors(gom, Context::new).size());
+        assertEquals(0, gom.getMetrics().get("MyType.name").getInFlightCount());
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foo", myTypes.get(0).get("name"));
+        assertEquals("bar", myTypes.get(1).get("name"));
+    }
+
+}
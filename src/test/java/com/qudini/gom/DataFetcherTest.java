@@ -6,8 +6,14 @@ import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.qudini.gom.Gom.newGom;
 import static com.qudini.gom.utils.QueryRunner.callExpectingData;
@@ -15,9 +21,11 @@ import static com.qudini.gom.utils.QueryRunner.callExpectingErrors;
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toSet;
 import static lombok.AccessLevel.PRIVATE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 
 public final class DataFetcherTest {
@@ -70,6 +78,187 @@ public final class DataFetcherTest {
         assertTrue(called.get());
     }
 
+    @Test
+    public void blocking() {
+        AtomicReference<String> threadName = new AtomicReference<>();
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Blocking
+            @FieldResolver("name")
+            public String name(MyType myType) {
+                threadName.set(Thread.currentThread().getName());
+                return myType.getName() + "bar";
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(), new MyTypeResolver()))
+                .executor(Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "blocking")))
+                .build();
+        assertEquals("foobar", ((Map<String, ?>) callExpectingData(gom, new Context()).get("myType")).get("name"));
+        assertEquals("blocking", threadName.get());
+    }
+
+    @Test
+    public void blockingByDefault() {
+        AtomicReference<String> threadName = new AtomicReference<>();
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @FieldResolver("name")
+            public String name(MyType myType) {
+                threadName.set(Thread.currentThread().getName());
+                return myType.getName() + "bar";
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(), new MyTypeResolver()))
+                .executor(Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "blocking")))
+                .blocking(true)
+                .build();
+        assertEquals("foobar", ((Map<String, ?>) callExpectingData(gom, new Context()).get("myType")).get("name"));
+        assertEquals("blocking", threadName.get());
+    }
+
+    @Test
+    public void memoized() {
+        AtomicInteger calls = new AtomicInteger(0);
+        MyType myType = new MyType("foo");
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("Query")
+        final class MyQueryResolver {
+
+            @FieldResolver("myType")
+            public MyType myType() {
+                return myType;
+            }
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Memoized
+            @FieldResolver("name")
+            public String name(MyType myType) {
+                calls.incrementAndGet();
+                return myType.getName() + "bar";
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new MyQueryResolver(), new MyTypeResolver()))
+                .build();
+        Map<String, ?> data = callExpectingData(gom, new Context());
+        assertEquals("foobar", ((Map<String, ?>) data.get("first")).get("name"));
+        assertEquals("foobar", ((Map<String, ?>) data.get("second")).get("name"));
+        assertEquals(1, calls.get());
+        callExpectingData(gom, new Context());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void selectionForType() {
+        AtomicReference<Selection> selectionReference = new AtomicReference<>();
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class VideoArticle {
+
+            private final String title;
+
+            private final int duration;
+
+        }
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class TextArticle {
+
+            private final String title;
+
+            private final int words;
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("Query")
+        final class MyQueryResolver {
+
+            @FieldResolver("articles")
+            public List<Object> articles(Selection selection) {
+                selectionReference.set(selection);
+                return asList(new VideoArticle("foo", 60), new TextArticle("bar", 100));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(singletonList(new MyQueryResolver()))
+                .build();
+        List<Map<String, Object>> articles = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("articles");
+        assertEquals(60, articles.get(0).get("duration"));
+        assertEquals(100, articles.get(1).get("words"));
+        Selection selection = selectionReference.get();
+        assertEquals(Selection.of("title", "duration", "words").stream().collect(toSet()), selection.stream().collect(toSet()));
+        assertNotEquals(Selection.of("title", "duration", "words"), selection);
+        assertEquals(Selection.of("title", "duration"), selection.forType("VideoArticle"));
+        assertEquals(Selection.of("title", "words"), selection.forType("TextArticle"));
+    }
+
+    @Test
+    public void selectionArguments() {
+        AtomicReference<Selection> selectionReference = new AtomicReference<>();
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class Post {
+
+            private final String title;
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("Query")
+        final class MyQueryResolver {
+
+            @FieldResolver("posts")
+            public List<Post> posts(Selection selection) {
+                selectionReference.set(selection);
+                return singletonList(new Post("foo"));
+            }
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("Post")
+        final class MyPostResolver {
+
+            @FieldResolver("comments")
+            public List<String> comments(Post post, Arguments arguments) {
+                return arguments
+                        .<String>getOptional("containing")
+                        .map(Collections::singletonList)
+                        .orElseGet(() -> asList("bar", "baz"));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new MyQueryResolver(), new MyPostResolver()))
+                .build();
+        List<Map<String, Object>> posts = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("posts");
+        assertEquals(singletonList("qux"), posts.get(0).get("recent"));
+        assertEquals(asList("bar", "baz"), posts.get(0).get("all"));
+        Selection selection = selectionReference.get();
+        assertTrue(selection.contains("comments"));
+        assertNotEquals(Selection.of("title", "comments"), selection);
+        Map<String, Arguments> titleArguments = selection.getArguments("title");
+        assertEquals(singletonList("title"), new ArrayList<>(titleArguments.keySet()));
+        assertFalse(titleArguments.get("title").getOptional("containing").isPresent());
+        Map<String, Arguments> commentsArguments = selection.getArguments("comments");
+        assertEquals(asList("recent", "all"), new ArrayList<>(commentsArguments.keySet()));
+        assertEquals("qux", commentsArguments.get("recent").get("containing"));
+        assertFalse(commentsArguments.get("all").getOptional("containing").isPresent());
+        assertTrue(selection.getArguments("missing").isEmpty());
+    }
+
     @Test
     public void withArguments() {
         AtomicBoolean called = new AtomicBoolean(false);
@@ -1,28 +1,46 @@
 package com.qudini.gom;
 
 import com.qudini.gom.utils.Context;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderOptions;
+import org.dataloader.DataLoaderRegistry;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
 
 import static com.qudini.gom.Gom.newGom;
 import static com.qudini.gom.utils.QueryRunner.callExpectingData;
 import static com.qudini.gom.utils.QueryRunner.callExpectingErrors;
 import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static lombok.AccessLevel.PRIVATE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public final class DataLoaderTest {
@@ -35,6 +53,16 @@ public final class DataLoaderTest {
 
     }
 
+    @RequiredArgsConstructor(access = PRIVATE)
+    @Getter
+    public static final class MyEntity {
+
+        private final long id;
+
+        private final String name;
+
+    }
+
     @RequiredArgsConstructor(access = PRIVATE)
     @TypeResolver("Query")
     public static final class QueryResolver {
@@ -247,6 +275,63 @@ public final class DataLoaderTest {
         assertTrue(validSelection.get());
     }
 
+    @Test
+    public void withSourcesAndUnboundedSelection() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        AtomicBoolean validSelection = new AtomicBoolean(false);
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class MyName {
+
+            private final String value;
+            private final String content;
+
+            MyName(String value) {
+                this(value, value);
+            }
+
+            public MyName getSelf() {
+                return this;
+            }
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @FieldResolver("name")
+            public Map<MyType, MyName> name(Set<MyType> myTypes, @Depth(Depth.UNBOUNDED) Selection selection) {
+                callCount.incrementAndGet();
+                validSelection.set(
+                        selection.size() == 6
+                                && selection.contains("value")
+                                && selection.contains("self")
+                                && selection.contains("self/value")
+                                && selection.contains("self/content")
+                                && selection.contains("self/self")
+                                && selection.contains("self/self/value")
+                                && selection.subSelection("self/self/").contains("value")
+                );
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> new MyName(myType.getName())
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Map<String, Object>>> myTypes = (List<Map<String, Map<String, Object>>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foo", myTypes.get(0).get("name").get("value"));
+        assertEquals("bar", myTypes.get(1).get("name").get("value"));
+        assertEquals(1, callCount.get());
+        assertTrue(validSelection.get());
+    }
+
     @Test
     public void withSourcesArgumentsAndSelection() {
         AtomicInteger callCount = new AtomicInteger(0);
@@ -348,6 +433,277 @@ public final class DataLoaderTest {
         assertEquals(3, callCount.get());
     }
 
+    @Test
+    public void maxParallelism() {
+        CountDownLatch latch = new CountDownLatch(3);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(maxParallelism = 3)
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes, Arguments arguments) throws InterruptedException {
+                latch.countDown();
+                assertTrue(latch.await(10, SECONDS));
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> myType.getName() + arguments.getOptional("suffix").orElse("")
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foo", myTypes.get(0).get("nameWithoutSuffix"));
+        assertEquals("foofoo", myTypes.get(0).get("nameWithFooSuffix"));
+        assertEquals("barbar", myTypes.get(1).get("nameWithBarSuffix"));
+    }
+
+    @Test
+    public void timeout() {
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(timeoutMillis = 10)
+            @FieldResolver("name")
+            public CompletableFuture<Map<MyType, String>> name(Set<MyType> myTypes) {
+                return new CompletableFuture<>();
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        assertFalse(callExpectingErrors(gom, Context::new).isEmpty());
+    }
+
+    @Test
+    public void hedging() {
+        AtomicBoolean slow = new AtomicBoolean(false);
+        Thread dispatchingThread = Thread.currentThread();
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(maxBatchSize = 1, hedgingPercentile = 50)
+            @FieldResolver("name")
+            public CompletableFuture<Map<MyType, String>> name(Set<MyType> myTypes) {
+                long delay = Thread.currentThread() == dispatchingThread && slow.compareAndSet(true, false) ? 2000 : 1;
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return myTypes.stream().collect(toMap(identity(), MyType::getName));
+                });
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        for (int i = 0; i < 10; i++) {
+            callExpectingData(gom, new Context());
+        }
+        slow.set(true);
+        long startTime = System.nanoTime();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertTrue(System.nanoTime() - startTime < SECONDS.toNanos(1));
+        assertEquals("foo", myTypes.get(0).get("name"));
+        assertEquals("bar", myTypes.get(1).get("name"));
+        ResolverMetrics metrics = gom.getMetrics().get("MyType.name");
+        assertTrue(metrics.getHedgeCount() >= 1);
+        assertTrue(metrics.getWonHedgeCount() >= 1);
+    }
+
+    @Test
+    public void hedgingAfterFailure() {
+        AtomicBoolean failing = new AtomicBoolean(false);
+        Thread dispatchingThread = Thread.currentThread();
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(maxBatchSize = 1, hedgingPercentile = 50)
+            @FieldResolver("name")
+            public CompletableFuture<Map<MyType, String>> name(Set<MyType> myTypes) {
+                boolean hedge = Thread.currentThread() != dispatchingThread;
+                boolean failure = !hedge && failing.get();
+                long delay = !failing.get() ? 1 : hedge ? 300 : 50;
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    if (failure) {
+                        throw new IllegalStateException("Failed");
+                    }
+                    return myTypes.stream().collect(toMap(identity(), MyType::getName));
+                });
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        for (int i = 0; i < 10; i++) {
+            callExpectingData(gom, new Context());
+        }
+        failing.set(true);
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foo", myTypes.get(0).get("name"));
+        assertEquals("bar", myTypes.get(1).get("name"));
+        assertTrue(gom.getMetrics().get("MyType.name").getWonHedgeCount() >= 1);
+    }
+
+    @Test
+    public void groupedByArguments() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @FieldResolver("name")
+            public Map<Arguments, Map<MyType, String>> name(Map<Arguments, Set<MyType>> myTypesByArguments) {
+                callCount.incrementAndGet();
+                return myTypesByArguments
+                        .entrySet()
+                        .stream()
+                        .collect(toMap(
+                                Map.Entry::getKey,
+                                entry -> entry
+                                        .getValue()
+                                        .stream()
+                                        .collect(toMap(
+                                                identity(),
+                                                myType -> myType.getName() + entry.getKey().getOptional("suffix").orElse("")
+                                        ))
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foo", myTypes.get(0).get("nameWithoutSuffix"));
+        assertEquals("foofoo", myTypes.get(0).get("nameWithFooSuffix"));
+        assertEquals("foobar", myTypes.get(0).get("nameWithBarSuffix"));
+        assertEquals("bar", myTypes.get(1).get("nameWithoutSuffix"));
+        assertEquals("barfoo", myTypes.get(1).get("nameWithFooSuffix"));
+        assertEquals("barbar", myTypes.get(1).get("nameWithBarSuffix"));
+        assertEquals(1, callCount.get());
+    }
+
+    @Test
+    public void groupingArguments() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(groupingArguments = "suffix")
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes, Arguments arguments) {
+                callCount.incrementAndGet();
+                assertFalse(arguments.getNullable("format").isPresent());
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> myType.getName() + arguments.getOptional("suffix").orElse("")
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foofoo", myTypes.get(0).get("shortName"));
+        assertEquals("foofoo", myTypes.get(0).get("longName"));
+        assertEquals("barfoo", myTypes.get(1).get("shortName"));
+        assertEquals("barfoo", myTypes.get(1).get("longName"));
+        assertEquals(1, callCount.get());
+    }
+
+    @Test
+    public void groupingArgumentsBySource() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(groupingArguments = "suffix")
+            @FieldResolver("name")
+            public Map<MyType, String> name(Map<MyType, Arguments> myTypes, Arguments arguments) {
+                callCount.incrementAndGet();
+                assertEquals(2, myTypes.size());
+                assertFalse(arguments.getNullable("format").isPresent());
+                return myTypes
+                        .entrySet()
+                        .stream()
+                        .collect(toMap(
+                                Map.Entry::getKey,
+                                entry -> entry.getKey().getName()
+                                        + arguments.getOptional("suffix").orElse("")
+                                        + ("long".equals(entry.getValue().get("format")) ? "!" : "")
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foofoo", myTypes.get(0).get("shortName"));
+        assertEquals("foofoo!", myTypes.get(0).get("longName"));
+        assertEquals("barfoo", myTypes.get(1).get("shortName"));
+        assertEquals("barfoo!", myTypes.get(1).get("longName"));
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    public void normalizedArguments() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes, Arguments arguments) {
+                callCount.incrementAndGet();
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> myType.getName() + String.join("", arguments.<List<String>>get("suffixes"))
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .argumentsNormalizer(ArgumentsNormalizer.unorderedLists("suffixes"))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("fooab", myTypes.get(0).get("nameAB"));
+        assertEquals("fooab", myTypes.get(0).get("nameBA"));
+        assertEquals("barab", myTypes.get(1).get("nameAB"));
+        assertEquals("barab", myTypes.get(1).get("nameBA"));
+        assertEquals(1, callCount.get());
+        assertEquals(1, gom.getMetrics().get("MyType.name").getMergedGroupCount());
+    }
+
     @Test
     public void sameByArguments() {
         AtomicInteger count = new AtomicInteger(0);
@@ -420,7 +776,7 @@ public final class DataLoaderTest {
     }
 
     @Test
-    public void sameBySelection() {
+    public void mergedSelections() {
         AtomicInteger callCount = new AtomicInteger(0);
         @RequiredArgsConstructor(access = PRIVATE)
         @Getter
@@ -435,15 +791,18 @@ public final class DataLoaderTest {
         @TypeResolver("MyType")
         final class MyTypeResolver {
 
-            @Batched
+            @Batched(mergeSelections = true)
             @FieldResolver("name")
-            public Map<MyType, MyName> name(Set<MyType> myTypes) {
+            public Map<MyType, MyName> name(Set<MyType> myTypes, Selection selection) {
                 callCount.incrementAndGet();
+                assertEquals(2, myTypes.size());
+                assertTrue(selection.contains("id"));
+                assertTrue(selection.contains("value"));
                 return myTypes
                         .stream()
                         .collect(toMap(
                                 identity(),
-                                myType -> new MyName("foo".equals(myType.getName()) ? 1 : 2, myType.getName())
+                                myType -> new MyName(1, myType.getName())
                         ));
             }
 
@@ -452,15 +811,15 @@ public final class DataLoaderTest {
                 .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
                 .build();
         List<Map<String, Map<String, Object>>> myTypes = (List<Map<String, Map<String, Object>>>) callExpectingData(gom, new Context()).get("myTypes");
-        assertEquals(1, myTypes.get(0).get("name1").get("id"));
-        assertEquals("foo", myTypes.get(0).get("name1").get("value"));
-        assertEquals(2, myTypes.get(1).get("name2").get("id"));
-        assertEquals("bar", myTypes.get(1).get("name2").get("value"));
+        assertEquals(1, myTypes.get(0).get("nameId").get("id"));
+        assertEquals("foo", myTypes.get(0).get("nameValue").get("value"));
+        assertEquals(1, myTypes.get(1).get("nameId").get("id"));
+        assertEquals("bar", myTypes.get(1).get("nameValue").get("value"));
         assertEquals(1, callCount.get());
     }
 
     @Test
-    public void sameByArgumentsAndSelection() {
+    public void mergedSelectionsWithConflictingArguments() {
         AtomicInteger callCount = new AtomicInteger(0);
         @RequiredArgsConstructor(access = PRIVATE)
         @Getter
@@ -475,15 +834,16 @@ public final class DataLoaderTest {
         @TypeResolver("MyType")
         final class MyTypeResolver {
 
-            @Batched
+            @Batched(mergeSelections = true)
             @FieldResolver("name")
-            public Map<MyType, MyName> name(Set<MyType> myTypes, Arguments arguments) {
+            public Map<MyType, MyName> name(Set<MyType> myTypes, Selection selection) {
                 callCount.incrementAndGet();
+                String suffix = selection.getArguments("value").get("value").get("suffix");
                 return myTypes
                         .stream()
                         .collect(toMap(
                                 identity(),
-                                myType -> new MyName("foo".equals(myType.getName()) ? 1 : 2, myType.getName() + arguments.get("suffix"))
+                                myType -> new MyName(1, myType.getName() + suffix)
                         ));
             }
 
@@ -492,11 +852,598 @@ public final class DataLoaderTest {
                 .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
                 .build();
         List<Map<String, Map<String, Object>>> myTypes = (List<Map<String, Map<String, Object>>>) callExpectingData(gom, new Context()).get("myTypes");
-        assertEquals(1, myTypes.get(0).get("name1").get("id"));
-        assertEquals("foobar", myTypes.get(0).get("name1").get("value"));
-        assertEquals(2, myTypes.get(1).get("name2").get("id"));
-        assertEquals("barbar", myTypes.get(1).get("name2").get("value"));
-        assertEquals(1, callCount.get());
+        assertEquals("fooA", myTypes.get(0).get("nameA").get("value"));
+        assertEquals("fooB", myTypes.get(0).get("nameB").get("value"));
+        assertEquals(1, myTypes.get(0).get("nameIdA").get("id"));
+        assertEquals("fooA", myTypes.get(0).get("nameIdA").get("value"));
+        assertEquals("barB", myTypes.get(1).get("nameB").get("value"));
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    public void mergedSelectionsForType() {
+        List<Selection> selections = new ArrayList<>();
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class VideoArticle {
+
+            private final String title;
+
+            private final int duration;
+
+        }
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class TextArticle {
+
+            private final String title;
+
+            private final int words;
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(mergeSelections = true)
+            @FieldResolver("articles")
+            public Map<MyType, List<Object>> articles(Set<MyType> myTypes, Selection selection) {
+                selections.add(selection);
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> asList(new VideoArticle(myType.getName(), 60), new TextArticle(myType.getName(), 100))
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, List<Map<String, Object>>>> myTypes = (List<Map<String, List<Map<String, Object>>>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals(60, myTypes.get(0).get("videos").get(0).get("duration"));
+        assertEquals(100, myTypes.get(0).get("texts").get(1).get("words"));
+        assertEquals(1, selections.size());
+        Selection selection = selections.get(0);
+        assertEquals(Selection.of("title", "duration", "words").stream().collect(toSet()), selection.stream().collect(toSet()));
+        assertNotEquals(Selection.of("title", "duration", "words"), selection);
+        assertEquals(Selection.of("title", "duration"), selection.forType("VideoArticle"));
+        assertEquals(Selection.of("title", "words"), selection.forType("TextArticle"));
+    }
+
+    @Test
+    public void siblingFragmentsForType() {
+        List<Selection> selections = new ArrayList<>();
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class VideoArticle {
+
+            private final String title;
+
+        }
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class TextArticle {
+
+            private final String title;
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @FieldResolver("articles")
+            public Map<MyType, List<Object>> articles(Set<MyType> myTypes, Selection selection) {
+                synchronized (selections) {
+                    selections.add(selection);
+                }
+                List<Object> articles = new ArrayList<>();
+                if (selection.forType("VideoArticle").contains("title")) {
+                    articles.add(new VideoArticle("video"));
+                }
+                if (selection.forType("TextArticle").contains("title")) {
+                    articles.add(new TextArticle("text"));
+                }
+                return myTypes
+                        .stream()
+                        .collect(toMap(identity(), myType -> articles));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, List<Map<String, Object>>>> myTypes = (List<Map<String, List<Map<String, Object>>>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("video", myTypes.get(0).get("videos").get(0).get("title"));
+        assertEquals(1, myTypes.get(0).get("videos").size());
+        assertEquals("text", myTypes.get(0).get("texts").get(0).get("title"));
+        assertEquals(1, myTypes.get(0).get("texts").size());
+        assertEquals(2, selections.size());
+        assertNotEquals(selections.get(0), selections.get(1));
+        Set<List<Selection>> projections = selections
+                .stream()
+                .map(selection -> asList(selection.forType("VideoArticle"), selection.forType("TextArticle")))
+                .collect(toSet());
+        Set<List<Selection>> expectedProjections = new HashSet<>(asList(
+                asList(Selection.of("title"), Selection.empty()),
+                asList(Selection.empty(), Selection.of("title"))
+        ));
+        assertEquals(expectedProjections, projections);
+    }
+
+    @Test
+    public void sameBySelection() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class MyName {
+
+            private final int id;
+
+            private final String value;
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @FieldResolver("name")
+            public Map<MyType, MyName> name(Set<MyType> myTypes) {
+                callCount.incrementAndGet();
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> new MyName("foo".equals(myType.getName()) ? 1 : 2, myType.getName())
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Map<String, Object>>> myTypes = (List<Map<String, Map<String, Object>>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals(1, myTypes.get(0).get("name1").get("id"));
+        assertEquals("foo", myTypes.get(0).get("name1").get("value"));
+        assertEquals(2, myTypes.get(1).get("name2").get("id"));
+        assertEquals("bar", myTypes.get(1).get("name2").get("value"));
+        assertEquals(1, callCount.get());
+    }
+
+    @Test
+    public void sameByArgumentsAndSelection() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class MyName {
+
+            private final int id;
+
+            private final String value;
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @FieldResolver("name")
+            public Map<MyType, MyName> name(Set<MyType> myTypes, Arguments arguments) {
+                callCount.incrementAndGet();
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> new MyName("foo".equals(myType.getName()) ? 1 : 2, myType.getName() + arguments.get("suffix"))
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Map<String, Object>>> myTypes = (List<Map<String, Map<String, Object>>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals(1, myTypes.get(0).get("name1").get("id"));
+        assertEquals("foobar", myTypes.get(0).get("name1").get("value"));
+        assertEquals(2, myTypes.get(1).get("name2").get("id"));
+        assertEquals("barbar", myTypes.get(1).get("name2").get("value"));
+        assertEquals(1, callCount.get());
+    }
+
+    @Test
+    public void undeclaredArgumentsAndSelection() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        @RequiredArgsConstructor(access = PRIVATE)
+        @Getter
+        final class MyName {
+
+            private final int id;
+
+            private final String value;
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @FieldResolver("name")
+            public Map<MyType, MyName> name(Set<MyType> myTypes) {
+                callCount.incrementAndGet();
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> new MyName("foo".equals(myType.getName()) ? 1 : 2, myType.getName())
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Map<String, Object>>> myTypes = (List<Map<String, Map<String, Object>>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals(1, myTypes.get(0).get("nameId").get("id"));
+        assertEquals("foo", myTypes.get(0).get("nameValue").get("value"));
+        assertEquals(2, myTypes.get(1).get("nameId").get("id"));
+        assertEquals("bar", myTypes.get(1).get("nameValue").get("value"));
+        assertEquals(1, callCount.get());
+    }
+
+    @Test
+    public void dataLoaderOptions() {
+        Map<String, DataLoaderOptions> optionsByField = new HashMap<>();
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(maxCachedKeys = 1)
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes) {
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                MyType::getName
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .dataLoaderOptions(optionsByField::put)
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foo", myTypes.get(0).get("name"));
+        assertEquals("bar", myTypes.get(1).get("name"));
+        DataLoaderOptions options = optionsByField.get("MyType.name");
+        assertTrue(options.cachingEnabled());
+        assertTrue(options.cacheMap().orElse(null) instanceof LruCacheMap);
+    }
+
+    @Test
+    public void cached() {
+        MyType foo = new MyType("foo");
+        MyType bar = new MyType("bar");
+        List<Set<MyType>> calls = new ArrayList<>();
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("Query")
+        final class MyQueryResolver {
+
+            @FieldResolver("myTypes")
+            public List<MyType> myTypes() {
+                return asList(foo, bar);
+            }
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @Cached(ttlMillis = 60_000)
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes) {
+                calls.add(myTypes);
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                MyType::getName
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new MyQueryResolver(), new MyTypeResolver()))
+                .build();
+        for (int i = 0; i < 2; i++) {
+            List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+            assertEquals("foo", myTypes.get(0).get("name"));
+            assertEquals("bar", myTypes.get(1).get("name"));
+        }
+        assertEquals(1, calls.size());
+        gom.invalidate("MyType.name", foo);
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foo", myTypes.get(0).get("name"));
+        assertEquals("bar", myTypes.get(1).get("name"));
+        assertEquals(2, calls.size());
+        assertEquals(singleton(foo), calls.get(1));
+        ResolverMetrics metrics = gom.getMetrics().get("MyType.name");
+        assertEquals(3, metrics.getCacheHitCount());
+        assertEquals(3, metrics.getCacheMissCount());
+    }
+
+    @Test
+    public void keyed() {
+        List<Set<MyEntity>> calls = new ArrayList<>();
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("Query")
+        final class MyQueryResolver {
+
+            @FieldResolver("myEntities")
+            public List<MyEntity> myEntities() {
+                return asList(new MyEntity(1, "foo"), new MyEntity(2, "bar"), new MyEntity(1, "foo"));
+            }
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyEntity")
+        final class MyEntityResolver {
+
+            @Batched(key = "id")
+            @FieldResolver("name")
+            public Map<Long, String> name(Set<MyEntity> myEntities) {
+                calls.add(myEntities);
+                return myEntities
+                        .stream()
+                        .collect(toMap(
+                                MyEntity::getId,
+                                myEntity -> myEntity.getName() + "bar"
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new MyQueryResolver(), new MyEntityResolver()))
+                .build();
+        List<Map<String, Object>> myEntities = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myEntities");
+        assertEquals("foobar", myEntities.get(0).get("name"));
+        assertEquals("barbar", myEntities.get(1).get("name"));
+        assertEquals("foobar", myEntities.get(2).get("name"));
+        assertEquals(1, calls.size());
+        assertEquals(2, calls.get(0).size());
+    }
+
+    @Test
+    public void lazyRegistry() throws NoSuchMethodException {
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes) {
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                MyType::getName
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        DataLoaderRegistry registry = gom.newDataLoaderRegistry();
+        assertTrue(registry.getKeys().isEmpty());
+        String key = MyTypeResolver.class.getMethod("name", Set.class).toString();
+        DataLoader<Object, Object> dataLoader = registry.getDataLoader(key);
+        assertNotNull(dataLoader);
+        assertSame(dataLoader, registry.getDataLoader(key));
+        assertEquals(singleton(key), registry.getKeys());
+        assertNotSame(dataLoader, gom.newDataLoaderRegistry().getDataLoader(key));
+    }
+
+    @Test
+    public void internedDiscriminators() {
+        List<Arguments> calls = new ArrayList<>();
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(maxBatchSize = 1)
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes, Arguments arguments) {
+                calls.add(arguments);
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> myType.getName() + arguments.get("suffix")
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foobar", myTypes.get(0).get("name"));
+        assertEquals("barbar", myTypes.get(1).get("name"));
+        assertEquals(2, calls.size());
+        assertSame(calls.get(0), calls.get(1));
+        callExpectingData(gom, new Context());
+        assertEquals(4, calls.size());
+        assertNotSame(calls.get(0), calls.get(2));
+    }
+
+    @Test
+    public void cachedOperationPlans() {
+        List<Arguments> calls = new ArrayList<>();
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes, Arguments arguments) {
+                calls.add(arguments);
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> myType.getName() + arguments.get("suffix")
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .maxCachedOperationPlans(100)
+                .build();
+        Map<String, PreparsedDocumentEntry> documents = new HashMap<>();
+        PreparsedDocumentProvider documentProvider = (executionInput, parseAndValidate) -> documents.computeIfAbsent(
+                executionInput.getQuery(),
+                query -> parseAndValidate.apply(executionInput)
+        );
+        for (int i = 0; i < 3; i++) {
+            List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context(), documentProvider).get("myTypes");
+            assertEquals("foobar", myTypes.get(0).get("name"));
+            assertEquals("barbar", myTypes.get(1).get("name"));
+        }
+        assertEquals(3, calls.size());
+        assertSame(calls.get(0), calls.get(1));
+        assertSame(calls.get(0), calls.get(2));
+        ResolverMetrics metrics = gom.getMetrics().get("MyType.name");
+        assertEquals(2, metrics.getPlanCacheHitCount());
+        assertEquals(1, metrics.getPlanCacheMissCount());
+    }
+
+    @Test
+    public void maxBatchSize() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        AtomicInteger maxSize = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(maxBatchSize = 1)
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes) {
+                callCount.incrementAndGet();
+                maxSize.accumulateAndGet(myTypes.size(), Math::max);
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> myType.getName() + "bar"
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foobar", myTypes.get(0).get("name"));
+        assertEquals("barbar", myTypes.get(1).get("name"));
+        assertEquals(2, callCount.get());
+        assertEquals(1, maxSize.get());
+        ResolverMetrics metrics = gom.getMetrics().get("MyType.name");
+        assertEquals(1, metrics.getBatchCount());
+        assertEquals(2, metrics.getChunkCount());
+        assertEquals(2, metrics.getKeyCount());
+        assertEquals(1, metrics.getLargestChunkSize());
+    }
+
+    @Test
+    public void maxConcurrentChunks() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(maxBatchSize = 1, maxConcurrentChunks = 1)
+            @FieldResolver("name")
+            public CompletableFuture<Map<MyType, String>> name(Set<MyType> myTypes) {
+                callCount.incrementAndGet();
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return myTypes
+                            .stream()
+                            .collect(toMap(
+                                    identity(),
+                                    myType -> myType.getName() + "bar"
+                            ));
+                });
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new QueryResolver(true), new MyTypeResolver()))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals("foobar", myTypes.get(0).get("name"));
+        assertEquals("barbar", myTypes.get(1).get("name"));
+        assertEquals(2, callCount.get());
+        assertEquals(1, maxRunning.get());
+    }
+
+
+    @Test(timeout = 60_000)
+    public void manySynchronousChunks() {
+        AtomicInteger callCount = new AtomicInteger(0);
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("Query")
+        final class MyQueryResolver {
+
+            @FieldResolver("myTypes")
+            public List<MyType> myTypes() {
+                return IntStream
+                        .range(0, 20_000)
+                        .mapToObj(i -> new MyType("foo" + i))
+                        .collect(toList());
+            }
+
+        }
+        @NoArgsConstructor(access = PRIVATE)
+        @TypeResolver("MyType")
+        final class MyTypeResolver {
+
+            @Batched(maxBatchSize = 1, maxConcurrentChunks = 1)
+            @FieldResolver("name")
+            public Map<MyType, String> name(Set<MyType> myTypes) {
+                callCount.incrementAndGet();
+                return myTypes
+                        .stream()
+                        .collect(toMap(
+                                identity(),
+                                myType -> myType.getName() + "bar"
+                        ));
+            }
+
+        }
+        Gom gom = newGom()
+                .resolvers(asList(new MyQueryResolver(), new MyTypeResolver()))
+                .build();
+        List<Map<String, Object>> myTypes = (List<Map<String, Object>>) callExpectingData(gom, new Context()).get("myTypes");
+        assertEquals(20_000, myTypes.size());
+        assertEquals("foo0bar", myTypes.get(0).get("name"));
+        assertEquals("foo19999bar", myTypes.get(19_999).get("name"));
+        assertEquals(20_000, callCount.get());
     }
 
 }
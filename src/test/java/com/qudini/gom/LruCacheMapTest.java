@@ -0,0 +1,42 @@
+package com.qudini.gom;
+
+import org.junit.Test;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class LruCacheMapTest {
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        LruCacheMap<String, Integer> cacheMap = new LruCacheMap<>(2);
+        cacheMap.set("foo", completedFuture(1));
+        cacheMap.set("bar", completedFuture(2));
+        cacheMap.get("foo");
+        cacheMap.set("baz", completedFuture(3));
+        assertTrue(cacheMap.containsKey("foo"));
+        assertFalse(cacheMap.containsKey("bar"));
+        assertTrue(cacheMap.containsKey("baz"));
+        assertEquals(2, cacheMap.size());
+        assertEquals(2, cacheMap.getAll().size());
+    }
+
+    @Test
+    public void deletesAndClears() {
+        LruCacheMap<String, Integer> cacheMap = new LruCacheMap<>(2);
+        cacheMap.set("foo", completedFuture(1));
+        cacheMap.set("bar", completedFuture(2));
+        cacheMap.delete("foo");
+        assertFalse(cacheMap.containsKey("foo"));
+        cacheMap.clear();
+        assertEquals(0, cacheMap.size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void invalidSize() {
+        new LruCacheMap<String, Integer>(0);
+    }
+
+}
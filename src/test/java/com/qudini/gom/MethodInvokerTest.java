@@ -0,0 +1,104 @@
+package com.qudini.gom;
+
+import lombok.NoArgsConstructor;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static lombok.AccessLevel.PUBLIC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public final class MethodInvokerTest {
+
+    @NoArgsConstructor(access = PUBLIC)
+    public static final class MyResolver {
+
+        private final AtomicInteger callCount = new AtomicInteger(0);
+
+        public String noParameter() {
+            return "foobar";
+        }
+
+        public String oneParameter(String first) {
+            return first;
+        }
+
+        public String twoParameters(String first, Integer second) {
+            return first + second;
+        }
+
+        public String threeParameters(String first, int second, String third) {
+            return first + second + third;
+        }
+
+        public void noReturnedValue() {
+            callCount.incrementAndGet();
+        }
+
+        public static String staticMethod(String first) {
+            return first + "static";
+        }
+
+        public String failing(String message) {
+            throw new UnsupportedOperationException(message);
+        }
+
+    }
+
+    private static MethodInvoker invoker(MyResolver resolver, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return MethodInvoker.of(MyResolver.class.getMethod(name, parameterTypes), resolver);
+    }
+
+    @Test
+    public void arities() throws Exception {
+        MyResolver resolver = new MyResolver();
+        assertEquals("foobar", invoker(resolver, "noParameter").invoke());
+        assertEquals("foo", invoker(resolver, "oneParameter", String.class).invoke("foo"));
+        assertEquals("foo1", invoker(resolver, "twoParameters", String.class, Integer.class).invoke("foo", 1));
+        assertEquals("foo1bar", invoker(resolver, "threeParameters", String.class, int.class, String.class).invoke("foo", 1, "bar"));
+    }
+
+    @Test
+    public void voidMethod() throws Exception {
+        MyResolver resolver = new MyResolver();
+        assertNull(invoker(resolver, "noReturnedValue").invoke());
+        assertEquals(1, resolver.callCount.get());
+    }
+
+    @Test
+    public void staticMethod() throws Exception {
+        assertEquals("foostatic", invoker(new MyResolver(), "staticMethod", String.class).invoke("foo"));
+    }
+
+    @Test
+    public void exceptionsAreUnwrapped() throws Exception {
+        MethodInvoker invoker = invoker(new MyResolver(), "failing", String.class);
+        try {
+            invoker.invoke("foobar");
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertEquals("foobar", e.getMessage());
+        }
+    }
+
+    @Test
+    public void invalidArguments() throws Exception {
+        MethodInvoker invoker = invoker(new MyResolver(), "threeParameters", String.class, int.class, String.class);
+        try {
+            invoker.invoke("foo", "bar", "baz");
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(ClassCastException.class, e.getCause().getClass());
+        }
+        try {
+            invoker.invoke("foo", null, "baz");
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(NullPointerException.class, e.getCause().getClass());
+        }
+    }
+
+}
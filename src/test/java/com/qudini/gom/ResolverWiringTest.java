@@ -0,0 +1,98 @@
+package com.qudini.gom;
+
+import com.qudini.gom.example.resolvers.loading.ArticleResolverByLoading;
+import com.qudini.gom.utils.Context;
+import lombok.NoArgsConstructor;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static com.qudini.gom.Gom.newGom;
+import static com.qudini.gom.utils.QueryRunner.callExpectingData;
+import static java.util.Collections.singletonList;
+import static lombok.AccessLevel.PUBLIC;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class ResolverWiringTest {
+
+    private static final AtomicBoolean WIRED = new AtomicBoolean(false);
+
+    private static void checkWiring() {
+        WIRED.set(Stream
+                .of(new Throwable().getStackTrace())
+                .anyMatch(element -> element.getClassName().endsWith("_ResolverWiring")));
+    }
+
+    @NoArgsConstructor(access = PUBLIC)
+    @TypeResolver("Query")
+    public static class ParentQueryResolver {
+
+        @FieldResolver("foobar")
+        public String foobar(Arguments arguments) {
+            checkWiring();
+            return arguments.get("foobar");
+        }
+
+    }
+
+    @NoArgsConstructor(access = PUBLIC)
+    public static final class QueryResolver extends ParentQueryResolver {
+
+        @Override
+        public String foobar(Arguments arguments) {
+            return super.foobar(arguments) + "bar";
+        }
+
+    }
+
+    @NoArgsConstructor(access = PUBLIC)
+    @TypeResolver("Query")
+    private static final class PrivateQueryResolver {
+
+        @FieldResolver("foobar")
+        public String foobar(Arguments arguments) {
+            checkWiring();
+            return arguments.get("foobar");
+        }
+
+    }
+
+    @Test
+    public void generated() {
+        Set<Class<?>> resolverClasses = new HashSet<>();
+        for (ResolverWiring<?> wiring : ServiceLoader.load(ResolverWiring.class)) {
+            resolverClasses.add(wiring.getResolverClass());
+        }
+        assertTrue(resolverClasses.contains(ArticleResolverByLoading.class));
+        assertTrue(resolverClasses.contains(ParentQueryResolver.class));
+        assertTrue(resolverClasses.contains(QueryResolver.class));
+        assertFalse(resolverClasses.contains(PrivateQueryResolver.class));
+    }
+
+    @Test
+    public void withWiring() {
+        WIRED.set(false);
+        Gom gom = newGom()
+                .resolvers(singletonList(new QueryResolver()))
+                .build();
+        assertEquals("foobar", callExpectingData(gom, new Context()).get("foobar"));
+        assertTrue(WIRED.get());
+    }
+
+    @Test
+    public void withoutWiring() {
+        WIRED.set(true);
+        Gom gom = newGom()
+                .resolvers(singletonList(new PrivateQueryResolver()))
+                .build();
+        assertEquals("foo", callExpectingData(gom, new Context()).get("foobar"));
+        assertFalse(WIRED.get());
+    }
+
+}
@@ -5,9 +5,12 @@ import org.junit.Test;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 
+import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.joining;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public final class SelectionTest {
@@ -33,6 +36,46 @@ public final class SelectionTest {
         assertTrue(subSelection.contains("world"));
     }
 
+    @Test
+    public void retain() {
+        DefaultSelection selection = new DefaultSelection(new HashSet<String>() {{
+            add("title");
+            add("author");
+            add("author/name");
+            add("authorName");
+        }});
+        assertEquals(Selection.of("author", "author/name"), selection.retain(singletonList("author")));
+        assertEquals(Selection.of("author/name"), selection.retain(singletonList("author/")));
+        assertEquals(Selection.of("authorName"), selection.retain(singletonList("authorName")));
+    }
+
+    @Test
+    public void sharedSubSelection() {
+        Selection selection = Selection.of("foo", "bar", "bar/hello", "bar/hello/world");
+        assertSame(selection.subSelection("bar/"), selection.subSelection("bar/"));
+        assertSame(selection.subSelection("bar/hello/"), selection.subSelection("bar/").subSelection("hello/"));
+        assertEquals(Selection.of("hello", "hello/world"), selection.subSelection("bar/"));
+        assertEquals(Selection.of("world"), selection.subSelection("bar/hello/"));
+        assertEquals(Selection.empty(), selection.subSelection("baz/"));
+    }
+
+    @Test
+    public void partialPrefixSubSelection() {
+        Selection selection = Selection.of("foo", "bar", "bar/hello");
+        assertEquals(Selection.of("r", "r/hello"), selection.subSelection("ba"));
+    }
+
+    @Test
+    public void equality() {
+        Selection selection = Selection.of("foo", "bar/hello");
+        assertEquals(Selection.of("bar/hello", "foo"), selection);
+        assertEquals(Selection.of("bar/hello", "foo").hashCode(), selection.hashCode());
+        assertNotEquals(Selection.of("foo", "bar", "bar/hello"), selection);
+        assertEquals(2, selection.size());
+        assertFalse(selection.contains("bar"));
+        assertTrue(selection.contains("bar/hello"));
+    }
+
     @Test
     public void contains() {
         Selection selection = new DefaultSelection(new HashSet<String>() {{
@@ -6,6 +6,9 @@ import graphql.ExecutionResult;
 import graphql.GraphQL;
 import graphql.GraphQLError;
 import graphql.execution.instrumentation.dataloader.DataLoaderDispatcherInstrumentation;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import graphql.language.InterfaceTypeDefinition;
+import graphql.language.UnionTypeDefinition;
 import graphql.schema.GraphQLScalarType;
 import graphql.schema.GraphQLSchema;
 import graphql.schema.idl.RuntimeWiring;
@@ -15,6 +18,7 @@ import graphql.schema.idl.TypeDefinitionRegistry;
 import lombok.NoArgsConstructor;
 import org.dataloader.DataLoaderRegistry;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -24,6 +28,7 @@ import static com.qudini.gom.utils.ResourceReader.readResource;
 import static graphql.ExecutionInput.newExecutionInput;
 import static graphql.GraphQL.newGraphQL;
 import static graphql.schema.idl.RuntimeWiring.newRuntimeWiring;
+import static graphql.schema.idl.TypeRuntimeWiring.newTypeWiring;
 import static java.lang.Thread.currentThread;
 import static lombok.AccessLevel.PRIVATE;
 import static org.junit.Assert.assertNull;
@@ -32,7 +37,12 @@ import static org.junit.Assert.assertTrue;
 @NoArgsConstructor(access = PRIVATE)
 public final class QueryRunner {
 
-    private static ExecutionResult call(Gom gom, Object context, GraphQLScalarType[] scalars) {
+    private static ExecutionResult call(
+            Gom gom,
+            Object context,
+            @Nullable PreparsedDocumentProvider documentProvider,
+            GraphQLScalarType[] scalars
+    ) {
 
         StackTraceElement caller = currentThread().getStackTrace()[3];
         String testClassName;
@@ -50,6 +60,14 @@ public final class QueryRunner {
         RuntimeWiring.Builder runtimeWiringBuilder = newRuntimeWiring();
         Stream.of(scalars).forEach(runtimeWiringBuilder::scalar);
         gom.decorateRuntimeWiringBuilder(runtimeWiringBuilder);
+        Stream
+                .concat(
+                        typeDefinitionRegistry.getTypes(InterfaceTypeDefinition.class).stream().map(InterfaceTypeDefinition::getName),
+                        typeDefinitionRegistry.getTypes(UnionTypeDefinition.class).stream().map(UnionTypeDefinition::getName)
+                )
+                .forEach(typeName -> runtimeWiringBuilder.type(newTypeWiring(typeName).typeResolver(
+                        environment -> environment.getSchema().getObjectType(environment.getObject().getClass().getSimpleName())
+                )));
         RuntimeWiring runtimeWiring = runtimeWiringBuilder.build();
 
         GraphQLSchema graphQLSchema = new SchemaGenerator().makeExecutableSchema(
@@ -57,8 +75,7 @@ public final class QueryRunner {
                 runtimeWiring
         );
 
-        DataLoaderRegistry dataLoaderRegistry = new DataLoaderRegistry();
-        gom.decorateDataLoaderRegistry(dataLoaderRegistry);
+        DataLoaderRegistry dataLoaderRegistry = gom.newDataLoaderRegistry();
 
         String queryFile = baseResourceName + ".query";
         ExecutionInput executionInput;
@@ -72,9 +89,12 @@ public final class QueryRunner {
             throw new IllegalStateException("File not found: " + queryFile, e);
         }
 
-        GraphQL graphQL = newGraphQL(graphQLSchema)
-                .instrumentation(new DataLoaderDispatcherInstrumentation())
-                .build();
+        GraphQL.Builder graphQLBuilder = newGraphQL(graphQLSchema)
+                .instrumentation(new DataLoaderDispatcherInstrumentation());
+        if (documentProvider != null) {
+            graphQLBuilder.preparsedDocumentProvider(documentProvider);
+        }
+        GraphQL graphQL = graphQLBuilder.build();
 
         try {
             return graphQL.executeAsync(executionInput).get();
@@ -85,13 +105,24 @@ public final class QueryRunner {
     }
 
     public static Map<String, ?> callExpectingData(Gom gom, Object context, GraphQLScalarType... scalars) {
-        ExecutionResult result = call(gom, context, scalars);
+        ExecutionResult result = call(gom, context, null, scalars);
+        assertTrue(result.getErrors().toString(), result.getErrors().isEmpty());
+        return result.getData();
+    }
+
+    public static Map<String, ?> callExpectingData(
+            Gom gom,
+            Object context,
+            PreparsedDocumentProvider documentProvider,
+            GraphQLScalarType... scalars
+    ) {
+        ExecutionResult result = call(gom, context, documentProvider, scalars);
         assertTrue(result.getErrors().toString(), result.getErrors().isEmpty());
         return result.getData();
     }
 
     public static List<GraphQLError> callExpectingErrors(Gom gom, Supplier<?> contextSupplier, GraphQLScalarType... scalars) {
-        ExecutionResult result = call(gom, contextSupplier, scalars);
+        ExecutionResult result = call(gom, contextSupplier, null, scalars);
         assertNull(result.getData());
         return result.getErrors();
     }